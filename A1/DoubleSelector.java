@@ -0,0 +1,344 @@
+import java.util.Arrays;
+
+/**
+* Defines a library of selection methods
+* on arrays of doubles.
+*
+* Values are totally ordered as by Double.compare: -0.0 is less than
+* 0.0, NaN is greater than every other value including infinity, and
+* all NaNs are equal to each other, so they count as one distinct value.
+*
+* Generated from PrimitiveSelector.template by generate-selectors.sh;
+* edit the template, not this file.
+*
+* @author   DARGO WANG (yzw0060@auburn.edu)
+* @version  2018-01-15
+*
+*/
+public final class DoubleSelector {
+
+   /** Segments no longer than this are finished by insertion sort. */
+   private static final int INSERTION_THRESHOLD = 16;
+
+   /** Largest hash table distinct() will allocate. */
+   private static final int MAX_TABLE = 1 << 30;
+
+   /**
+    * Can't instantiate this class.
+    */
+   private DoubleSelector() { }
+
+
+/**
+* Selects the minimum value from the array a. 
+* @param a array to search in
+* @return return the minimum
+*/
+   public static double min(double[] a) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      double mini = a[0];
+      for (int i = 1; i < a.length; i++) {
+         if (Double.compare(a[i], mini) < 0) {
+            mini = a[i];
+         }
+      }
+      return mini;
+   }
+
+/**
+* Selects the maximum value from the array a. 
+* @param a array to search in
+* @return return the maximum
+*/
+   public static double max(double[] a) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      double maxi = a[0];
+      for (int i = 1; i < a.length; i++) {
+         if (Double.compare(a[i], maxi) > 0) {
+            maxi = a[i];
+         }
+      }
+      return maxi;
+   }
+
+/**
+* Selects the kth minimum value from the array a. Values are ranked
+* by distinct value, so duplicates count once. Runs in expected linear
+* time using a single scratch buffer; a is not changed.
+* @param a array to search in
+* @param k number of smallest 
+* @return return the kth minimum
+*/
+   public static double kmin(double[] a, int k) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      double[] b = new double[tableLength(a.length)];
+      int n = distinct(a, b);
+      if (k < 1 || k > n) {
+         throw new IllegalArgumentException();
+      }
+      return select(b, 0, n - 1, k - 1);
+   }
+
+/**
+* Selects the kth maximum value from the array a. Values are ranked
+* by distinct value, so duplicates count once. Runs in expected linear
+* time using a single scratch buffer; a is not changed.
+* @param a array to search in
+* @param k number of largest
+* @return return the kth maximum
+*/
+   public static double kmax(double[] a, int k) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      double[] b = new double[tableLength(a.length)];
+      int n = distinct(a, b);
+      if (k < 1 || k > n) {
+         throw new IllegalArgumentException();
+      }
+      return select(b, 0, n - 1, n - k);
+   }
+
+/**
+* Returns an array containing all the values in a in the range.
+* @param a array to search in
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the new array
+*/  
+   public static double[] range(double[] a, double low, double high) { 
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      int n = 0;
+      for (double v : a) {
+         if (Double.compare(v, low) >= 0 && Double.compare(v, high) <= 0) {
+            n++;
+         }
+      }
+      double[] c = new double[n];
+      n = 0;
+      for (double v : a) {
+         if (Double.compare(v, low) >= 0 && Double.compare(v, high) <= 0) {
+            c[n++] = v;
+         }
+      }
+      return c;
+   }
+
+/**
+* Returns the smallest value in a that is greater than 
+* or equal to the given key. Scans a once without allocating.
+* @param a array to search in
+* @param key number to compare
+* @return return the ceiling number
+*/ 
+   public static double ceiling(double[] a, double key) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      boolean found = false;
+      double ceiling = 0;
+      for (double v : a) {
+         if (Double.compare(v, key) >= 0 && (!found || Double.compare(v, ceiling) < 0)) {
+            ceiling = v;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new IllegalArgumentException();
+      }
+      return ceiling;
+   } 
+
+/**
+* Returns the largest value in a that is less than 
+* or equal to the given key. Scans a once without allocating.
+* @param a array to search in
+* @param key number to compare
+* @return return the floor number
+*/  
+   public static double floor(double[] a, double key) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      boolean found = false;
+      double floor = 0;
+      for (double v : a) {
+         if (Double.compare(v, key) <= 0 && (!found || Double.compare(v, floor) > 0)) {
+            floor = v;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new IllegalArgumentException();
+      }
+      return floor;
+   }
+
+
+/**
+* Returns the length of the scratch buffer distinct() needs for n values:
+* a power of two at least 1.5n, or n itself when that would not fit.
+* @param n number of values
+* @return return the buffer length
+*/
+   private static int tableLength(int n) {
+      long want = n + (n >>> 1);
+      if (want > MAX_TABLE) {
+         return n;
+      }
+      return Math.max(Integer.highestOneBit((int) want - 1) << 1, 2);
+   }
+
+/**
+* Copies the distinct values of a into the front of b and returns how
+* many there are. b is used as an open-addressing hash table with a side
+* bitmap marking occupied slots, so no value is reserved as a marker.
+* When b is too small to act as a table, falls back to sort and compact.
+* @param a values to read
+* @param b scratch buffer from tableLength(a.length)
+* @return return the number of distinct values
+*/
+   private static int distinct(double[] a, double[] b) {
+      if (b.length == a.length) {
+         System.arraycopy(a, 0, b, 0, a.length);
+         Arrays.sort(b);
+         int n = 1;
+         for (int i = 1; i < b.length; i++) {
+            if (Double.compare(b[i], b[n - 1]) != 0) {
+               b[n++] = b[i];
+            }
+         }
+         return n;
+      }
+      int mask = b.length - 1;
+      long[] used = new long[(b.length + 63) >>> 6];
+      for (double v : a) {
+         int h = Double.hashCode(v) * 0x9E3779B9;
+         int i = (h ^ (h >>> 16)) & mask;
+         while ((used[i >>> 6] & (1L << i)) != 0 && Double.compare(b[i], v) != 0) {
+            i = (i + 1) & mask;
+         }
+         used[i >>> 6] |= 1L << i;
+         b[i] = v;
+      }
+      int n = 0;
+      for (int i = 0; i < b.length; i++) {
+         if ((used[i >>> 6] & (1L << i)) != 0) {
+            b[n++] = b[i];
+         }
+      }
+      return n;
+   }
+
+/**
+* Returns the value that would be at index k if b[lo..hi] were sorted,
+* reordering b[lo..hi] in the process. Quickselect with median-of-three
+* pivots and three-way partitioning; if the recursion gets deeper than
+* 2 log n the remaining segment is sorted instead.
+* @param b array to select in
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @param k index to select, lo <= k <= hi
+* @return return the selected value
+*/
+   private static double select(double[] b, int lo, int hi, int k) {
+      int depth = 2 * (32 - Integer.numberOfLeadingZeros(hi - lo + 1));
+      while (hi - lo > INSERTION_THRESHOLD) {
+         if (depth-- == 0) {
+            Arrays.sort(b, lo, hi + 1);
+            return b[k];
+         }
+         long bounds = partition(b, lo, hi);
+         int lt = (int) (bounds >>> 32);
+         int gt = (int) bounds;
+         if (k < lt) {
+            hi = lt - 1;
+         }
+         else if (k > gt) {
+            lo = gt + 1;
+         }
+         else {
+            return b[k];
+         }
+      }
+      insertionSort(b, lo, hi);
+      return b[k];
+   }
+
+/**
+* Three-way partitions b[lo..hi] around the median of its first, middle
+* and last values. Afterwards b[lo..lt-1] is less than the pivot,
+* b[lt..gt] equals it and b[gt+1..hi] is greater.
+* @param b array to partition
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @return return lt in the high 32 bits and gt in the low 32 bits
+*/
+   private static long partition(double[] b, int lo, int hi) {
+      double p = median(b[lo], b[(lo + hi) >>> 1], b[hi]);
+      int lt = lo;
+      int i = lo;
+      int gt = hi;
+      while (i <= gt) {
+         double v = b[i];
+         int c = Double.compare(v, p);
+         if (c < 0) {
+            b[i++] = b[lt];
+            b[lt++] = v;
+         }
+         else if (c > 0) {
+            b[i] = b[gt];
+            b[gt--] = v;
+         }
+         else {
+            i++;
+         }
+      }
+      return ((long) lt << 32) | gt;
+   }
+
+/**
+* Returns the median of three values.
+* @param x first value
+* @param y second value
+* @param z third value
+* @return return the median
+*/
+   private static double median(double x, double y, double z) {
+      if (Double.compare(x, y) > 0) {
+         double t = x;
+         x = y;
+         y = t;
+      }
+      if (Double.compare(y, z) <= 0) {
+         return y;
+      }
+      return Double.compare(x, z) > 0 ? x : z;
+   }
+
+/**
+* Sorts b[lo..hi] in place by insertion.
+* @param b array to sort
+* @param lo first index of the segment
+* @param hi last index of the segment
+*/
+   private static void insertionSort(double[] b, int lo, int hi) {
+      for (int i = lo + 1; i <= hi; i++) {
+         double v = b[i];
+         int j = i - 1;
+         while (j >= lo && Double.compare(b[j], v) > 0) {
+            b[j + 1] = b[j];
+            j--;
+         }
+         b[j + 1] = v;
+      }
+   }
+}
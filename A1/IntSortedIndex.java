@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/**
+* An immutable sorted index over the values of an int array. The index
+* is built once in O(n log n) and then answers ceiling, floor, rank and
+* range queries in O(log n) by binary search over primitive storage,
+* without allocating on the lookup path (except range, which returns
+* a new array). Like Selector, it covers the full int domain and ranks
+* values by distinct value.
+*
+* @author   DARGO WANG (yzw0060@auburn.edu)
+* @version  2018-01-15
+*
+*/
+public final class IntSortedIndex {
+
+   /** distinct values of the source array, ascending. */
+   private final int[] values;
+
+   /** ends[i] is how many source values are less than or equal to values[i]. */
+   private final int[] ends;
+
+/**
+* Builds an index over the values in a. a is not changed and later
+* changes to a do not affect the index.
+* @param a array to index
+*/
+   public IntSortedIndex(int[] a) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      int[] b = Arrays.copyOf(a, a.length);
+      Arrays.sort(b);
+      int n = 1;
+      for (int i = 1; i < b.length; i++) {
+         if (b[i] != b[i - 1]) {
+            n++;
+         }
+      }
+      values = new int[n];
+      ends = new int[n];
+      int j = 0;
+      for (int i = 0; i < b.length; i++) {
+         if (i + 1 == b.length || b[i] != b[i + 1]) {
+            values[j] = b[i];
+            ends[j] = i + 1;
+            j++;
+         }
+      }
+   }
+
+/**
+* Returns the number of values indexed, duplicates included.
+* @return return the number of values
+*/
+   public int size() {
+      return ends[ends.length - 1];
+   }
+
+/**
+* Returns the number of distinct values indexed.
+* @return return the number of distinct values
+*/
+   public int distinctSize() {
+      return values.length;
+   }
+
+/**
+* Returns the minimum value.
+* @return return the minimum
+*/
+   public int min() {
+      return values[0];
+   }
+
+/**
+* Returns the maximum value.
+* @return return the maximum
+*/
+   public int max() {
+      return values[values.length - 1];
+   }
+
+/**
+* Returns the kth minimum distinct value.
+* @param k number of smallest
+* @return return the kth minimum
+*/
+   public int kmin(int k) {
+      if (k < 1 || k > values.length) {
+         throw new IllegalArgumentException();
+      }
+      return values[k - 1];
+   }
+
+/**
+* Returns the kth maximum distinct value.
+* @param k number of largest
+* @return return the kth maximum
+*/
+   public int kmax(int k) {
+      if (k < 1 || k > values.length) {
+         throw new IllegalArgumentException();
+      }
+      return values[values.length - k];
+   }
+
+/**
+* Returns the smallest value that is greater than or equal to key.
+* @param key number to compare
+* @return return the ceiling number
+*/
+   public int ceiling(int key) {
+      int i = lowerBound(key);
+      if (i == values.length) {
+         throw new IllegalArgumentException();
+      }
+      return values[i];
+   }
+
+/**
+* Returns the largest value that is less than or equal to key.
+* @param key number to compare
+* @return return the floor number
+*/
+   public int floor(int key) {
+      int i = upperBound(key);
+      if (i == 0) {
+         throw new IllegalArgumentException();
+      }
+      return values[i - 1];
+   }
+
+/**
+* Returns the number of distinct values strictly less than key, so that
+* kmin(rank(key) + 1) is the ceiling of key.
+* @param key number to compare
+* @return return the rank of key
+*/
+   public int rank(int key) {
+      return lowerBound(key);
+   }
+
+/**
+* Returns how many values, duplicates included, are greater than or
+* equal to low and less than or equal to high. This is the length of
+* the array Selector.range would return for the same bounds.
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the number of values in range
+*/
+   public int countInRange(int low, int high) {
+      if (low > high) {
+         return 0;
+      }
+      return countAtMost(upperBound(high)) - countAtMost(lowerBound(low));
+   }
+
+/**
+* Returns an array containing all the values, duplicates included, that
+* are greater than or equal to low and less than or equal to high, in
+* ascending order.
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the new array
+*/
+   public int[] range(int low, int high) {
+      if (low > high) {
+         return new int[0];
+      }
+      int from = lowerBound(low);
+      int to = upperBound(high);
+      int[] c = new int[countAtMost(to) - countAtMost(from)];
+      int n = 0;
+      for (int i = from; i < to; i++) {
+         for (int m = ends[i] - countAtMost(i); m > 0; m--) {
+            c[n++] = values[i];
+         }
+      }
+      return c;
+   }
+
+/**
+* Returns how many source values lie in values[0..i-1].
+* @param i number of distinct values to count over
+* @return return the number of source values
+*/
+   private int countAtMost(int i) {
+      return i == 0 ? 0 : ends[i - 1];
+   }
+
+/**
+* Returns the index of the first value greater than or equal to key,
+* or values.length if there is none.
+* @param key number to compare
+* @return return the index
+*/
+   private int lowerBound(int key) {
+      int lo = 0;
+      int hi = values.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (values[mid] < key) {
+            lo = mid + 1;
+         }
+         else {
+            hi = mid;
+         }
+      }
+      return lo;
+   }
+
+/**
+* Returns the index of the first value greater than key, or
+* values.length if there is none.
+* @param key number to compare
+* @return return the index
+*/
+   private int upperBound(int key) {
+      int lo = 0;
+      int hi = values.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         if (values[mid] <= key) {
+            lo = mid + 1;
+         }
+         else {
+            hi = mid;
+         }
+      }
+      return lo;
+   }
+}
@@ -0,0 +1,80 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* A read-only view of a file of little-endian ints, memory-mapped in
+* chunks so files larger than one mapping (2 GB) can be scanned. Used
+* by the Path overloads in Selector.
+*
+* @author   DARGO WANG (yzw0060@auburn.edu)
+* @version  2018-01-15
+*
+*/
+final class MappedInts implements Closeable {
+
+   /** number of ints in each mapped chunk. */
+   static final int CHUNK_INTS = 1 << 28;
+
+   /** channel the chunks are mapped from. */
+   private final FileChannel channel;
+
+   /** number of ints in the file. */
+   private final long size;
+
+/**
+* Opens file for mapping. The file length must be a multiple of four.
+* @param file file of little-endian ints
+* @throws IOException if the file cannot be opened
+*/
+   MappedInts(Path file) throws IOException {
+      channel = FileChannel.open(file, StandardOpenOption.READ);
+      long bytes = channel.size();
+      if (bytes % Integer.BYTES != 0) {
+         channel.close();
+         throw new IllegalArgumentException();
+      }
+      size = bytes / Integer.BYTES;
+   }
+
+/**
+* Returns the number of ints in the file.
+* @return return the number of ints
+*/
+   long size() {
+      return size;
+   }
+
+/**
+* Returns the number of chunks the file is mapped in.
+* @return return the number of chunks
+*/
+   int chunks() {
+      return (int) ((size + CHUNK_INTS - 1) / CHUNK_INTS);
+   }
+
+/**
+* Maps chunk i of the file. Chunk i holds the ints at positions
+* i * CHUNK_INTS onwards.
+* @param i chunk to map
+* @return return a buffer over the chunk
+* @throws IOException if the chunk cannot be mapped
+*/
+   IntBuffer chunk(int i) throws IOException {
+      long first = (long) i * CHUNK_INTS;
+      long length = Math.min(CHUNK_INTS, size - first);
+      return channel.map(FileChannel.MapMode.READ_ONLY, first * Integer.BYTES,
+                         length * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+   }
+
+   @Override
+   public void close() throws IOException {
+      channel.close();
+   }
+}
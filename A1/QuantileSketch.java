@@ -0,0 +1,320 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+* A mergeable sketch of a stream of ints that answers approximate rank
+* and quantile queries in space that grows only with log n. This is a
+* KLL sketch: values sit in a stack of levels where a value on level h
+* stands for 2^h input values and level capacities shrink by 2/3 going
+* down from the top. When the sketch fills, the lowest full level is
+* sorted and every other value, starting at a random offset, is
+* promoted to the next level.
+*
+* <p>With parameter k, ranks are within about 2.3 / k^0.97 of n of the
+* truth with 99% confidence (about 1.3% for the default k of 200). The
+* minimum and maximum are always exact. Updates take amortized
+* O(log k) time, which is constant for a fixed k. A sketch is not
+* thread safe; build one per thread or node and merge them.
+*
+* @author   DARGO WANG (yzw0060@auburn.edu)
+* @version  2018-01-15
+*
+*/
+public final class QuantileSketch {
+
+   /** k used when none is given. */
+   public static final int DEFAULT_K = 200;
+
+   /** smallest capacity of any level. */
+   private static final int MIN_CAPACITY = 8;
+
+   /** accuracy parameter: capacity of the top level. */
+   private final int k;
+
+   /** coin flips choosing which half of a level is promoted. */
+   private final Random random = new Random();
+
+   /** levels[h] holds values of weight 2^h in its first sizes[h] slots. */
+   private int[][] levels = new int[1][MIN_CAPACITY];
+
+   /** number of values held on each level. */
+   private int[] sizes = new int[1];
+
+   /** number of values held on all levels. */
+   private int held;
+
+   /** combined capacity of all levels, kept in step with their number. */
+   private int capacity;
+
+   /** number of values seen. */
+   private long n;
+
+   /** smallest value seen. */
+   private int min = Integer.MAX_VALUE;
+
+   /** largest value seen. */
+   private int max = Integer.MIN_VALUE;
+
+/**
+* Creates an empty sketch with the default k.
+*/
+   public QuantileSketch() {
+      this(DEFAULT_K);
+   }
+
+/**
+* Creates an empty sketch. Larger k gives smaller rank error at the
+* cost of more space.
+* @param k accuracy parameter, at least 8
+*/
+   public QuantileSketch(int k) {
+      if (k < MIN_CAPACITY) {
+         throw new IllegalArgumentException();
+      }
+      this.k = k;
+      capacity = capacity(1);
+   }
+
+/**
+* Adds one value to the sketch.
+* @param v value to add
+*/
+   public void update(int v) {
+      append(0, v);
+      n++;
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+      if (held >= capacity) {
+         compress();
+      }
+   }
+
+/**
+* Adds every value in a to the sketch.
+* @param a values to add
+*/
+   public void update(int[] a) {
+      if (a == null) {
+         throw new IllegalArgumentException();
+      }
+      for (int v : a) {
+         update(v);
+      }
+   }
+
+/**
+* Folds the values summarized by that sketch into this one. that is not
+* changed unless it is this sketch, which then counts every value twice.
+* Both sketches must have the same k.
+* @param that sketch to merge in
+*/
+   public void merge(QuantileSketch that) {
+      if (that == null || that.k != k) {
+         throw new IllegalArgumentException();
+      }
+      int[] counts = Arrays.copyOf(that.sizes, that.sizes.length);
+      for (int h = 0; h < counts.length; h++) {
+         for (int i = 0; i < counts[h]; i++) {
+            append(h, that.levels[h][i]);
+         }
+      }
+      n += that.n;
+      min = Math.min(min, that.min);
+      max = Math.max(max, that.max);
+      while (held >= capacity) {
+         compress();
+      }
+   }
+
+/**
+* Returns the number of values seen.
+* @return return the number of values
+*/
+   public long size() {
+      return n;
+   }
+
+/**
+* Returns the smallest value seen.
+* @return return the minimum
+*/
+   public int min() {
+      checkNotEmpty();
+      return min;
+   }
+
+/**
+* Returns the largest value seen.
+* @return return the maximum
+*/
+   public int max() {
+      checkNotEmpty();
+      return max;
+   }
+
+/**
+* Returns the rank error this sketch guarantees with 99% confidence, as
+* a fraction of the number of values seen.
+* @return return the normalized rank error
+*/
+   public double normalizedRankError() {
+      return 2.296 / Math.pow(k, 0.9723);
+   }
+
+/**
+* Returns the approximate fraction of values seen that are less than or
+* equal to v.
+* @param v value to rank
+* @return return the normalized rank of v
+*/
+   public double rank(int v) {
+      checkNotEmpty();
+      long below = 0;
+      for (int h = 0; h < sizes.length; h++) {
+         for (int i = 0; i < sizes[h]; i++) {
+            if (levels[h][i] <= v) {
+               below += 1L << h;
+            }
+         }
+      }
+      return (double) below / n;
+   }
+
+/**
+* Returns the approximate quantile q of the values seen, defined as in
+* Selector.quantiles: the value at position ceil(q * n) of the sorted
+* values. 0 and 1 give the exact minimum and maximum.
+* @param q quantile to select, between 0 and 1
+* @return return the value at quantile q
+*/
+   public int quantile(double q) {
+      return quantiles(q)[0];
+   }
+
+/**
+* Returns several approximate quantiles at once, sorting the sketch only
+* once. See quantile.
+* @param qs quantiles to select, each between 0 and 1
+* @return return the value for each requested quantile, in order
+*/
+   public int[] quantiles(double... qs) {
+      checkNotEmpty();
+      if (qs == null) {
+         throw new IllegalArgumentException();
+      }
+      long[] items = new long[held];
+      int m = 0;
+      for (int h = 0; h < sizes.length; h++) {
+         for (int i = 0; i < sizes[h]; i++) {
+            items[m++] = ((long) levels[h][i] << 6) | h;
+         }
+      }
+      Arrays.sort(items);
+      int[] result = new int[qs.length];
+      for (int j = 0; j < qs.length; j++) {
+         if (!(qs[j] >= 0 && qs[j] <= 1)) {
+            throw new IllegalArgumentException();
+         }
+         if (qs[j] == 0) {
+            result[j] = min;
+            continue;
+         }
+         if (qs[j] == 1) {
+            result[j] = max;
+            continue;
+         }
+         long target = Math.max((long) Math.ceil(qs[j] * n), 1);
+         long seen = 0;
+         int i = 0;
+         while (i < items.length - 1) {
+            seen += 1L << (items[i] & 63);
+            if (seen >= target) {
+               break;
+            }
+            i++;
+         }
+         result[j] = (int) (items[i] >> 6);
+      }
+      return result;
+   }
+
+/**
+* Throws if no values have been seen.
+*/
+   private void checkNotEmpty() {
+      if (n == 0) {
+         throw new IllegalArgumentException();
+      }
+   }
+
+/**
+* Returns the capacity of level h when the sketch has height levels.
+* @param h level
+* @param height number of levels
+* @return return the capacity of the level
+*/
+   private int capacity(int h, int height) {
+      double c = k * Math.pow(2.0 / 3.0, height - 1 - h);
+      return Math.max(MIN_CAPACITY, (int) Math.ceil(c));
+   }
+
+/**
+* Returns the combined capacity of all levels when the sketch has height
+* levels.
+* @param height number of levels
+* @return return the total capacity
+*/
+   private int capacity(int height) {
+      int total = 0;
+      for (int h = 0; h < height; h++) {
+         total += capacity(h, height);
+      }
+      return total;
+   }
+
+/**
+* Appends v to level h, adding levels and growing storage as needed.
+* @param h level
+* @param v value to append
+*/
+   private void append(int h, int v) {
+      if (h >= sizes.length) {
+         levels = Arrays.copyOf(levels, h + 1);
+         sizes = Arrays.copyOf(sizes, h + 1);
+         for (int i = 0; i <= h; i++) {
+            if (levels[i] == null) {
+               levels[i] = new int[MIN_CAPACITY];
+            }
+         }
+         capacity = capacity(h + 1);
+      }
+      if (sizes[h] == levels[h].length) {
+         levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+      }
+      levels[h][sizes[h]++] = v;
+      held++;
+   }
+
+/**
+* Compacts the lowest level that is at or over capacity: sorts it and
+* promotes every other value, from a random offset, to the level above.
+* A leftover odd value stays where it is.
+*/
+   private void compress() {
+      int height = sizes.length;
+      int h = 0;
+      while (sizes[h] < capacity(h, height)) {
+         h++;
+      }
+      int[] level = levels[h];
+      int size = sizes[h];
+      Arrays.sort(level, 0, size);
+      int keep = size & 1;
+      int start = keep + (random.nextBoolean() ? 1 : 0);
+      for (int i = start; i < size; i += 2) {
+         append(h + 1, level[i]);
+      }
+      held -= size - keep;
+      sizes[h] = keep;
+   }
+}
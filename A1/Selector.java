@@ -1,4 +1,14 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
 * Defines a library of selection methods
@@ -11,6 +21,14 @@ import java.util.Arrays;
 */
 public final class Selector {
 
+   /** How a selection is answered. */
+   public enum Mode {
+      /** compute the exact answer. */
+      EXACT,
+      /** estimate the answer from a QuantileSketch. */
+      APPROXIMATE
+   }
+
    /**
     * Can't instantiate this class.
     *
@@ -57,7 +75,9 @@ public final class Selector {
    }
 
 /**
-* Selects the kth minimum value from the array a.
+* Selects the kth minimum value from the array a. Values are ranked
+* by distinct value, so duplicates count once. Runs in expected linear
+* time using a single scratch buffer; a is not changed.
 * @param a array to search in
 * @param k number of smallest 
 * @return return the kth minimum
@@ -66,31 +86,18 @@ public final class Selector {
       if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
       }
-      int[] b = Arrays.copyOf(a, a.length);
-      int dup = 0;
-      Arrays.sort(b);
-      for (int i = 0; i < b.length - 1; i++) {
-         if (b[i] == b[i + 1]) {
-            b[i] = 0;
-            dup++;
-         }
-      }
-      int[] c = new int[b.length - dup];
-      int n = 0;
-      for (int j : b) {
-         if (j != 0) {
-            c[n] = j;
-            n++;
-         }
-      }
-      if (k < 1 || k > c.length) {
+      int[] b = new int[tableLength(a.length)];
+      int n = distinct(a, b);
+      if (k < 1 || k > n) {
          throw new IllegalArgumentException();
       }
-      return c[k - 1];
+      return select(b, 0, n - 1, k - 1);
    }
    
 /**
-* Selects the kth maximum value from the array a.
+* Selects the kth maximum value from the array a. Values are ranked
+* by distinct value, so duplicates count once. Runs in expected linear
+* time using a single scratch buffer; a is not changed.
 * @param a array to search in
 * @param k number of largest
 * @return return the kth maximum
@@ -99,31 +106,101 @@ public final class Selector {
       if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
       }
-      int[] b = Arrays.copyOf(a, a.length);
-      int dup = 0;
-      Arrays.sort(b);
-      for (int i = 0; i < b.length - 1; i++) {
-         if (b[i] == b[i + 1]) {
-            b[i] = 0;
-            dup++;
+      int[] b = new int[tableLength(a.length)];
+      int n = distinct(a, b);
+      if (k < 1 || k > n) {
+         throw new IllegalArgumentException();
+      }
+      return select(b, 0, n - 1, n - k);
+   }
+
+/**
+* Selects several distinct-rank minimums from the array a at once. The
+* ith answer is kmin(a, ranks[i]), but all of them come from one shared
+* partitioning of a single scratch buffer that only descends into
+* segments holding a requested rank, so a is never fully sorted.
+* @param a array to search in
+* @param ranks numbers of smallest, each between 1 and the number of
+*    distinct values in a
+* @return return the kth minimum for each requested rank, in order
+*/
+   public static int[] select(int[] a, int... ranks) {
+      if (a == null || a.length == 0 || ranks == null) {
+         throw new IllegalArgumentException();
+      }
+      int[] b = new int[tableLength(a.length)];
+      int n = distinct(a, b);
+      int[] targets = new int[ranks.length];
+      for (int i = 0; i < ranks.length; i++) {
+         if (ranks[i] < 1 || ranks[i] > n) {
+            throw new IllegalArgumentException();
          }
+         targets[i] = ranks[i] - 1;
       }
-      int[] c = new int[b.length - dup];
-      int n = 0;
-      for (int j : b) {
-         if (j != 0) {
-            c[n] = j;
-            n++;
+      multiSelect(b, 0, n - 1, targets);
+      int[] result = new int[ranks.length];
+      for (int i = 0; i < ranks.length; i++) {
+         result[i] = b[ranks[i] - 1];
+      }
+      return result;
+   }
+
+/**
+* Selects several quantiles from the array a at once. Unlike kmin,
+* quantiles count every value, duplicates included: quantile q is the
+* value at position ceil(q * a.length) of a sorted copy of a (the
+* nearest-rank method), so 0 gives the minimum and 1 the maximum. All
+* answers come from one shared partitioning pass, as in select.
+* @param a array to search in
+* @param qs quantiles to select, each between 0 and 1
+* @return return the value for each requested quantile, in order
+*/
+   public static int[] quantiles(int[] a, double... qs) {
+      if (a == null || a.length == 0 || qs == null) {
+         throw new IllegalArgumentException();
+      }
+      int[] targets = new int[qs.length];
+      for (int i = 0; i < qs.length; i++) {
+         if (!(qs[i] >= 0 && qs[i] <= 1)) {
+            throw new IllegalArgumentException();
          }
+         targets[i] = Math.max((int) Math.ceil(qs[i] * a.length) - 1, 0);
+      }
+      int[] positions = Arrays.copyOf(targets, targets.length);
+      int[] b = Arrays.copyOf(a, a.length);
+      multiSelect(b, 0, b.length - 1, targets);
+      int[] result = new int[qs.length];
+      for (int i = 0; i < qs.length; i++) {
+         result[i] = b[positions[i]];
       }
-      if (k < 1 || k > c.length) {
+      return result;
+   }
+
+/**
+* Selects several quantiles from the array a at once, either exactly as
+* quantiles(a, qs) does or approximately from a QuantileSketch built
+* over a in one pass. The approximate mode neither copies nor reorders
+* a, and its ranks are off by at most the sketch's normalized rank error.
+* @param a array to search in
+* @param mode whether to answer exactly or approximately
+* @param qs quantiles to select, each between 0 and 1
+* @return return the value for each requested quantile, in order
+*/
+   public static int[] quantiles(int[] a, Mode mode, double... qs) {
+      if (mode == null) {
+         throw new IllegalArgumentException();
+      }
+      if (mode == Mode.EXACT) {
+         return quantiles(a, qs);
+      }
+      if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
-      }  
-      return c[c.length - k];
-      
+      }
+      QuantileSketch sketch = new QuantileSketch();
+      sketch.update(a);
+      return sketch.quantiles(qs);
    }
 
-   
 /**
 * Returns an array containing all the values in a in the range.
 * @param a array to search in
@@ -135,22 +212,16 @@ public final class Selector {
       if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
       }
-      int n = 0;
-      int[] b = new int[a.length];
-      for (int i : a) {
-         if (i >= low && i <= high) {
-            b[n] = i;
-            n++;
-         }
-      }
-      int[] c = Arrays.copyOfRange(b, 0, n);
+      int[] c = new int[count(a, 0, a.length, low, high)];
+      fill(a, 0, a.length, low, high, c, 0);
       return c;
    }
 
 
 /**
 * Returns the smallest value in a that is greater than 
-* or equal to the given key. 
+* or equal to the given key. Scans a once without allocating; for
+* repeated queries against the same array, build an IntSortedIndex.
 * @param a array to search in
 * @param key number to compare
 * @return return the ceiling number
@@ -159,16 +230,25 @@ public final class Selector {
       if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
       }
-      int ceiling;
-      int[] b = range(a, key, 99999);
-      ceiling = min(b);
+      boolean found = false;
+      int ceiling = 0;
+      for (int i : a) {
+         if (i >= key && (!found || i < ceiling)) {
+            ceiling = i;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new IllegalArgumentException();
+      }
       return ceiling;
    } 
 
 
 /**
-* Returns the largest value in a that is greater than 
-* or equal to the given key. 
+* Returns the largest value in a that is less than 
+* or equal to the given key. Scans a once without allocating; for
+* repeated queries against the same array, build an IntSortedIndex.
 * @param a array to search in
 * @param key number to compare
 * @return return the floor number
@@ -177,9 +257,715 @@ public final class Selector {
       if (a == null || a.length == 0) {
          throw new IllegalArgumentException();
       }
-      int floor;
-      int[] b = range(a, -99999, key);
-      floor = max(b);
+      boolean found = false;
+      int floor = 0;
+      for (int i : a) {
+         if (i <= key && (!found || i > floor)) {
+            floor = i;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new IllegalArgumentException();
+      }
       return floor;
    }
+
+
+/**
+* Selects the minimum value from the array a, splitting the scan across
+* the common ForkJoinPool when a is large enough to benefit.
+* @param a array to search in
+* @return return the minimum
+*/
+   public static int parallelMin(int[] a) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      if (a.length < PARALLEL_THRESHOLD) {
+         return min(a);
+      }
+      return ForkJoinPool.commonPool().invoke(
+         new ExtremeTask(a, 0, a.length, chunkSize(a.length), false));
+   }
+
+/**
+* Selects the maximum value from the array a, splitting the scan across
+* the common ForkJoinPool when a is large enough to benefit.
+* @param a array to search in
+* @return return the maximum
+*/
+   public static int parallelMax(int[] a) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      if (a.length < PARALLEL_THRESHOLD) {
+         return max(a);
+      }
+      return ForkJoinPool.commonPool().invoke(
+         new ExtremeTask(a, 0, a.length, chunkSize(a.length), true));
+   }
+
+/**
+* Returns an array containing all the values in a in the range, in the
+* order they appear in a. When a is large enough to benefit, chunks of a
+* are counted in parallel, then each chunk copies its matches straight
+* into its slice of one exactly sized result.
+* @param a array to search in
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the new array
+*/
+   public static int[] parallelRange(int[] a, int low, int high) {
+      if (a == null || a.length == 0) {
+         throw new IllegalArgumentException();
+      }
+      if (a.length < PARALLEL_THRESHOLD) {
+         return range(a, low, high);
+      }
+      int chunk = chunkSize(a.length);
+      int[] offsets = new int[(a.length - 1) / chunk + 2];
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      pool.invoke(new RangeTask(a, chunk, low, high, offsets, null, 0, offsets.length - 1));
+      for (int i = 1; i < offsets.length; i++) {
+         offsets[i] += offsets[i - 1];
+      }
+      int[] c = new int[offsets[offsets.length - 1]];
+      pool.invoke(new RangeTask(a, chunk, low, high, offsets, c, 0, offsets.length - 1));
+      return c;
+   }
+
+
+/**
+* Selects the minimum value from a file of little-endian ints, scanning
+* it through a memory mapping instead of loading it onto the heap.
+* @param file file of ints to search in
+* @return return the minimum
+* @throws IOException if the file cannot be read
+*/
+   public static int min(Path file) throws IOException {
+      try (MappedInts ints = open(file)) {
+         int mini = Integer.MAX_VALUE;
+         for (int c = 0; c < ints.chunks(); c++) {
+            IntBuffer b = ints.chunk(c);
+            for (int i = 0; i < b.limit(); i++) {
+               mini = Math.min(mini, b.get(i));
+            }
+         }
+         return mini;
+      }
+   }
+
+/**
+* Selects the maximum value from a file of little-endian ints, scanning
+* it through a memory mapping instead of loading it onto the heap.
+* @param file file of ints to search in
+* @return return the maximum
+* @throws IOException if the file cannot be read
+*/
+   public static int max(Path file) throws IOException {
+      try (MappedInts ints = open(file)) {
+         int maxi = Integer.MIN_VALUE;
+         for (int c = 0; c < ints.chunks(); c++) {
+            IntBuffer b = ints.chunk(c);
+            for (int i = 0; i < b.limit(); i++) {
+               maxi = Math.max(maxi, b.get(i));
+            }
+         }
+         return maxi;
+      }
+   }
+
+/**
+* Returns how many values in a file of little-endian ints are in the
+* range.
+* @param file file of ints to search in
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the number of values in range
+* @throws IOException if the file cannot be read
+*/
+   public static long rangeCount(Path file, int low, int high) throws IOException {
+      try (MappedInts ints = open(file)) {
+         long n = 0;
+         for (int c = 0; c < ints.chunks(); c++) {
+            IntBuffer b = ints.chunk(c);
+            for (int i = 0; i < b.limit(); i++) {
+               int v = b.get(i);
+               n += (v >= low & v <= high) ? 1 : 0;
+            }
+         }
+         return n;
+      }
+   }
+
+/**
+* Writes all the values in a file of little-endian ints that are in the
+* range to another file, as little-endian ints in their original order.
+* out is created or truncated.
+* @param file file of ints to search in
+* @param low lowest end in range
+* @param high highest end in range
+* @param out file to write the values in range to
+* @return return the number of values written
+* @throws IOException if either file cannot be used
+*/
+   public static long range(Path file, int low, int high, Path out) throws IOException {
+      try (MappedInts ints = open(file);
+           FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE,
+                                             StandardOpenOption.WRITE,
+                                             StandardOpenOption.TRUNCATE_EXISTING)) {
+         ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+         long n = 0;
+         for (int c = 0; c < ints.chunks(); c++) {
+            IntBuffer b = ints.chunk(c);
+            for (int i = 0; i < b.limit(); i++) {
+               int v = b.get(i);
+               if (v >= low && v <= high) {
+                  if (!buf.hasRemaining()) {
+                     drain(buf, ch);
+                  }
+                  buf.putInt(v);
+                  n++;
+               }
+            }
+         }
+         drain(buf, ch);
+         return n;
+      }
+   }
+
+/**
+* Selects the kth minimum value from a file of little-endian ints, with
+* values ranked by distinct value as in kmin(int[], int). Memory stays
+* bounded: after one histogram pass over the file, each further pass
+* marks the values falling in the next nonempty window of 2^28 ints in
+* a fixed-size bitmap, until the windows seen so far hold k distinct
+* values. Values spanning less than 2^27 take two passes, and no input
+* takes more than seventeen. Files small enough for the int[] engine to
+* fit in the same memory are read onto the heap and selected there.
+* @param file file of ints to search in
+* @param k number of smallest
+* @return return the kth minimum
+* @throws IOException if the file cannot be read
+*/
+   public static int kmin(Path file, int k) throws IOException {
+      return kth(file, k, false);
+   }
+
+/**
+* Selects the kth maximum value from a file of little-endian ints, with
+* values ranked by distinct value as in kmax(int[], int). Uses the same
+* bounded-memory bitmap windows as kmin(Path, int), walking the int
+* domain downward from the maximum.
+* @param file file of ints to search in
+* @param k number of largest
+* @return return the kth maximum
+* @throws IOException if the file cannot be read
+*/
+   public static int kmax(Path file, int k) throws IOException {
+      return kth(file, k, true);
+   }
+
+
+   /** Arrays shorter than this are scanned on the calling thread. */
+   private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+   /** Number of values each bitmap window of kth(Path) covers. */
+   private static final int WINDOW_BITS = 1 << 28;
+
+   /** kth(Path) histograms the int domain in slices of 2^BUCKET_SHIFT. */
+   private static final int BUCKET_SHIFT = 20;
+
+   /** Number of histogram slices kth(Path) uses. */
+   private static final int BUCKETS = 1 << (32 - BUCKET_SHIFT);
+
+   /** Segments no longer than this are finished by insertion sort. */
+   private static final int INSERTION_THRESHOLD = 16;
+
+   /** Largest hash table distinct() will allocate. */
+   private static final int MAX_TABLE = 1 << 30;
+
+/**
+* Returns the length of the scratch buffer distinct() needs for n values:
+* a power of two at least 1.5n, or n itself when that would not fit.
+* @param n number of values
+* @return return the buffer length
+*/
+   private static int tableLength(int n) {
+      long want = n + (n >>> 1);
+      if (want > MAX_TABLE) {
+         return n;
+      }
+      return Math.max(Integer.highestOneBit((int) want - 1) << 1, 2);
+   }
+
+/**
+* Copies the distinct values of a into the front of b and returns how
+* many there are. b is used as an open-addressing hash table with a side
+* bitmap marking occupied slots, so no value is reserved as a marker.
+* When b is too small to act as a table, falls back to sort and compact.
+* @param a values to read
+* @param b scratch buffer from tableLength(a.length)
+* @return return the number of distinct values
+*/
+   private static int distinct(int[] a, int[] b) {
+      if (b.length == a.length) {
+         System.arraycopy(a, 0, b, 0, a.length);
+         Arrays.sort(b);
+         int n = 1;
+         for (int i = 1; i < b.length; i++) {
+            if (b[i] != b[n - 1]) {
+               b[n++] = b[i];
+            }
+         }
+         return n;
+      }
+      int mask = b.length - 1;
+      long[] used = new long[(b.length + 63) >>> 6];
+      for (int v : a) {
+         int h = v * 0x9E3779B9;
+         int i = (h ^ (h >>> 16)) & mask;
+         while ((used[i >>> 6] & (1L << i)) != 0 && b[i] != v) {
+            i = (i + 1) & mask;
+         }
+         used[i >>> 6] |= 1L << i;
+         b[i] = v;
+      }
+      int n = 0;
+      for (int i = 0; i < b.length; i++) {
+         if ((used[i >>> 6] & (1L << i)) != 0) {
+            b[n++] = b[i];
+         }
+      }
+      return n;
+   }
+
+/**
+* Returns the value that would be at index k if b[lo..hi] were sorted,
+* reordering b[lo..hi] in the process. Quickselect with median-of-three
+* pivots and three-way partitioning; if the recursion gets deeper than
+* 2 log n the remaining segment is sorted instead, which bounds the
+* worst case at O(n log n).
+* @param b array to select in
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @param k index to select, lo <= k <= hi
+* @return return the selected value
+*/
+   private static int select(int[] b, int lo, int hi, int k) {
+      int depth = 2 * (32 - Integer.numberOfLeadingZeros(hi - lo + 1));
+      while (hi - lo > INSERTION_THRESHOLD) {
+         if (depth-- == 0) {
+            Arrays.sort(b, lo, hi + 1);
+            return b[k];
+         }
+         long bounds = partition(b, lo, hi);
+         int lt = (int) (bounds >>> 32);
+         int gt = (int) bounds;
+         if (k < lt) {
+            hi = lt - 1;
+         }
+         else if (k > gt) {
+            lo = gt + 1;
+         }
+         else {
+            return b[k];
+         }
+      }
+      insertionSort(b, lo, hi);
+      return b[k];
+   }
+
+/**
+* Puts the value that belongs at each index in targets into place, as
+* if b[lo..hi] were sorted, reordering b[lo..hi] in the process. Each
+* partition step answers the targets that land on the pivot and only
+* recurses into the sides that still hold a target. Falls back to
+* sorting the segment past depth 2 log n, as select does.
+* @param b array to select in
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @param targets indexes to select, each between lo and hi; sorted in
+*    place by this method
+*/
+   private static void multiSelect(int[] b, int lo, int hi, int[] targets) {
+      Arrays.sort(targets);
+      int depth = 2 * (32 - Integer.numberOfLeadingZeros(hi - lo + 1));
+      multiSelect(b, lo, hi, targets, 0, targets.length, depth);
+   }
+
+/**
+* Recursive step of multiSelect over targets[from..to-1].
+* @param b array to select in
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @param targets sorted indexes to select
+* @param from first target in this segment
+* @param to one past the last target in this segment
+* @param depth partition steps left before falling back to a sort
+*/
+   private static void multiSelect(int[] b, int lo, int hi, int[] targets,
+                                   int from, int to, int depth) {
+      if (from >= to) {
+         return;
+      }
+      if (hi - lo <= INSERTION_THRESHOLD) {
+         insertionSort(b, lo, hi);
+         return;
+      }
+      if (depth == 0) {
+         Arrays.sort(b, lo, hi + 1);
+         return;
+      }
+      long bounds = partition(b, lo, hi);
+      int lt = (int) (bounds >>> 32);
+      int gt = (int) bounds;
+      int left = from;
+      while (left < to && targets[left] < lt) {
+         left++;
+      }
+      int right = left;
+      while (right < to && targets[right] <= gt) {
+         right++;
+      }
+      multiSelect(b, lo, lt - 1, targets, from, left, depth - 1);
+      multiSelect(b, gt + 1, hi, targets, right, to, depth - 1);
+   }
+
+/**
+* Three-way partitions b[lo..hi] around the median of its first, middle
+* and last values. Afterwards b[lo..lt-1] is less than the pivot,
+* b[lt..gt] equals it and b[gt+1..hi] is greater.
+* @param b array to partition
+* @param lo first index of the segment
+* @param hi last index of the segment
+* @return return lt in the high 32 bits and gt in the low 32 bits
+*/
+   private static long partition(int[] b, int lo, int hi) {
+      int x = b[lo];
+      int y = b[(lo + hi) >>> 1];
+      int z = b[hi];
+      int p = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+      int lt = lo;
+      int i = lo;
+      int gt = hi;
+      while (i <= gt) {
+         int v = b[i];
+         if (v < p) {
+            b[i++] = b[lt];
+            b[lt++] = v;
+         }
+         else if (v > p) {
+            b[i] = b[gt];
+            b[gt--] = v;
+         }
+         else {
+            i++;
+         }
+      }
+      return ((long) lt << 32) | gt;
+   }
+
+/**
+* Sorts b[lo..hi] in place by insertion.
+* @param b array to sort
+* @param lo first index of the segment
+* @param hi last index of the segment
+*/
+   private static void insertionSort(int[] b, int lo, int hi) {
+      for (int i = lo + 1; i <= hi; i++) {
+         int v = b[i];
+         int j = i - 1;
+         while (j >= lo && b[j] > v) {
+            b[j + 1] = b[j];
+            j--;
+         }
+         b[j + 1] = v;
+      }
+   }
+
+/**
+* Opens file as mapped ints, rejecting an empty file as the int[]
+* methods reject an empty array.
+* @param file file of ints
+* @return return the opened file
+* @throws IOException if the file cannot be opened
+*/
+   private static MappedInts open(Path file) throws IOException {
+      if (file == null) {
+         throw new IllegalArgumentException();
+      }
+      MappedInts ints = new MappedInts(file);
+      if (ints.size() == 0) {
+         ints.close();
+         throw new IllegalArgumentException();
+      }
+      return ints;
+   }
+
+/**
+* Writes out whatever buf holds and clears it.
+* @param buf buffer to write
+* @param ch channel to write to
+* @throws IOException if writing fails
+*/
+   private static void drain(ByteBuffer buf, FileChannel ch) throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) {
+         ch.write(buf);
+      }
+      buf.clear();
+   }
+
+/**
+* Selects the kth distinct minimum or maximum of a file of ints. The
+* first pass counts the values falling in each of BUCKETS equal slices
+* of the int domain; each later pass marks the values of a window of up
+* to WINDOW_BITS consecutive ints in a bitmap, starting each window at
+* the next nonempty slice, until the windows seen hold k distinct values.
+* @param file file of ints to search in
+* @param k number of smallest or largest
+* @param fromTop true to rank from the maximum down
+* @return return the kth value
+* @throws IOException if the file cannot be read
+*/
+   private static int kth(Path file, int k, boolean fromTop) throws IOException {
+      try (MappedInts ints = open(file)) {
+         if (k < 1) {
+            throw new IllegalArgumentException();
+         }
+         if (ints.size() <= WINDOW_BITS >>> 6) {
+            int[] a = new int[(int) ints.size()];
+            ints.chunk(0).get(a);
+            return fromTop ? kmax(a, k) : kmin(a, k);
+         }
+         long[] counts = new long[BUCKETS];
+         for (int c = 0; c < ints.chunks(); c++) {
+            IntBuffer b = ints.chunk(c);
+            for (int i = 0; i < b.limit(); i++) {
+               counts[(b.get(i) ^ Integer.MIN_VALUE) >>> BUCKET_SHIFT]++;
+            }
+         }
+         long[] bits = null;
+         long seen = 0;
+         int lo = 0;
+         int hi = BUCKETS - 1;
+         while (true) {
+            while (lo <= hi && counts[fromTop ? hi : lo] == 0) {
+               if (fromTop) {
+                  hi--;
+               }
+               else {
+                  lo++;
+               }
+            }
+            if (lo > hi) {
+               throw new IllegalArgumentException();
+            }
+            int span = Math.min(hi - lo + 1, WINDOW_BITS >>> BUCKET_SHIFT);
+            int first = fromTop ? hi - span + 1 : lo;
+            long start = ((long) first << BUCKET_SHIFT) + Integer.MIN_VALUE;
+            long width = (long) span << BUCKET_SHIFT;
+            if (bits == null) {
+               bits = new long[(int) (width >>> 6)];
+            }
+            else {
+               Arrays.fill(bits, 0L);
+            }
+            for (int c = 0; c < ints.chunks(); c++) {
+               IntBuffer b = ints.chunk(c);
+               for (int i = 0; i < b.limit(); i++) {
+                  long off = b.get(i) - start;
+                  if (off >= 0 && off < width) {
+                     bits[(int) (off >>> 6)] |= 1L << off;
+                  }
+               }
+            }
+            long here = 0;
+            for (long w : bits) {
+               here += Long.bitCount(w);
+            }
+            if (seen + here >= k) {
+               long want = k - seen;
+               long rank = fromTop ? here - want : want - 1;
+               return (int) (start + nthSetBit(bits, rank));
+            }
+            seen += here;
+            if (fromTop) {
+               hi = first - 1;
+            }
+            else {
+               lo = first + span;
+            }
+         }
+      }
+   }
+
+/**
+* Returns the index of set bit number n (counting from zero) in bits.
+* @param bits bitmap to search
+* @param n number of set bits to skip
+* @return return the bit index
+*/
+   private static long nthSetBit(long[] bits, long n) {
+      for (int w = 0; w < bits.length; w++) {
+         int c = Long.bitCount(bits[w]);
+         if (n < c) {
+            long word = bits[w];
+            for (; n > 0; n--) {
+               word &= word - 1;
+            }
+            return ((long) w << 6) + Long.numberOfTrailingZeros(word);
+         }
+         n -= c;
+      }
+      throw new IllegalStateException();
+   }
+
+/**
+* Returns the number of values in a[from..to-1] in the range.
+* @param a array to search in
+* @param from first index to scan
+* @param to one past the last index to scan
+* @param low lowest end in range
+* @param high highest end in range
+* @return return the count
+*/
+   private static int count(int[] a, int from, int to, int low, int high) {
+      int n = 0;
+      for (int i = from; i < to; i++) {
+         int v = a[i];
+         n += (v >= low & v <= high) ? 1 : 0;
+      }
+      return n;
+   }
+
+/**
+* Copies the values of a[from..to-1] in the range into c, starting at
+* index n.
+* @param a array to search in
+* @param from first index to scan
+* @param to one past the last index to scan
+* @param low lowest end in range
+* @param high highest end in range
+* @param c array to copy into
+* @param n index in c of the first copied value
+*/
+   private static void fill(int[] a, int from, int to, int low, int high,
+                            int[] c, int n) {
+      for (int i = from; i < to; i++) {
+         int v = a[i];
+         if (v >= low && v <= high) {
+            c[n++] = v;
+         }
+      }
+   }
+
+/**
+* Returns the length of the chunks a parallel scan over n values is
+* split into: about four chunks per worker, but never fewer values
+* than PARALLEL_THRESHOLD / 4 per chunk.
+* @param n number of values
+* @return return the chunk length
+*/
+   private static int chunkSize(int n) {
+      int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+      return Math.max(n / parts + 1, PARALLEL_THRESHOLD >>> 2);
+   }
+
+   /**
+    * Finds the minimum or maximum of a[from..to-1] by splitting it in
+    * half until pieces fit in one chunk. The leaf loop is branch free so
+    * the JIT can vectorize it.
+    */
+   private static final class ExtremeTask extends RecursiveTask<Integer> {
+      private static final long serialVersionUID = 1L;
+
+      private final int[] a;
+      private final int from;
+      private final int to;
+      private final int chunk;
+      private final boolean max;
+
+      ExtremeTask(int[] a, int from, int to, int chunk, boolean max) {
+         this.a = a;
+         this.from = from;
+         this.to = to;
+         this.chunk = chunk;
+         this.max = max;
+      }
+
+      @Override
+      protected Integer compute() {
+         if (to - from <= chunk) {
+            int m = a[from];
+            if (max) {
+               for (int i = from + 1; i < to; i++) {
+                  m = Math.max(m, a[i]);
+               }
+            }
+            else {
+               for (int i = from + 1; i < to; i++) {
+                  m = Math.min(m, a[i]);
+               }
+            }
+            return m;
+         }
+         int mid = (from + to) >>> 1;
+         ExtremeTask left = new ExtremeTask(a, from, mid, chunk, max);
+         left.fork();
+         int right = new ExtremeTask(a, mid, to, chunk, max).compute();
+         int l = left.join();
+         return max ? Math.max(l, right) : Math.min(l, right);
+      }
+   }
+
+   /**
+    * Runs one pass of parallelRange over chunks [first, last) of a. When
+    * c is null, stores the count of chunk i in offsets[i + 1]; otherwise
+    * copies the matches of chunk i into c starting at offsets[i].
+    */
+   private static final class RangeTask extends RecursiveAction {
+      private static final long serialVersionUID = 1L;
+
+      private final int[] a;
+      private final int chunk;
+      private final int low;
+      private final int high;
+      private final int[] offsets;
+      private final int[] c;
+      private final int first;
+      private final int last;
+
+      RangeTask(int[] a, int chunk, int low, int high, int[] offsets,
+                int[] c, int first, int last) {
+         this.a = a;
+         this.chunk = chunk;
+         this.low = low;
+         this.high = high;
+         this.offsets = offsets;
+         this.c = c;
+         this.first = first;
+         this.last = last;
+      }
+
+      @Override
+      protected void compute() {
+         if (last - first == 1) {
+            int from = first * chunk;
+            int to = Math.min(from + chunk, a.length);
+            if (c == null) {
+               offsets[first + 1] = count(a, from, to, low, high);
+            }
+            else {
+               fill(a, from, to, low, high, c, offsets[first]);
+            }
+            return;
+         }
+         int mid = (first + last) >>> 1;
+         invokeAll(new RangeTask(a, chunk, low, high, offsets, c, first, mid),
+                   new RangeTask(a, chunk, low, high, offsets, c, mid, last));
+      }
+   }
 }
@@ -0,0 +1,323 @@
+/**
+* Defines selection methods over a sliding window of the most recent
+* values of an int stream, with the same semantics as Selector: kmin
+* and kmax rank values by distinct value. Pushing a value into a full
+* window evicts the oldest one.
+*
+* <p>min and max come from monotonic deques in O(1), and each push or
+* evict updates them in amortized O(1). kmin and kmax come from a treap
+* keyed by value with a count per value and subtree sizes, in expected
+* O(log w). Nothing is allocated after construction.
+*
+* @author   DARGO WANG (yzw0060@auburn.edu)
+* @version  2018-01-15
+*
+*/
+public final class WindowSelector {
+
+   /** the window: value number s is in window[s % capacity]. */
+   private final int[] window;
+
+   /** number of values pushed so far. */
+   private long pushed;
+
+   /** number of values in the window. */
+   private int size;
+
+   /** numbers of values that may still be the window minimum, oldest first. */
+   private final long[] minDeque;
+   private int minHead;
+   private int minCount;
+
+   /** numbers of values that may still be the window maximum, oldest first. */
+   private final long[] maxDeque;
+   private int maxHead;
+   private int maxCount;
+
+   /** treap nodes, numbered from 1; node 0 stands for an empty subtree. */
+   private final int[] keys;
+   private final int[] counts;
+   private final int[] priorities;
+   private final int[] left;
+   private final int[] right;
+
+   /** number of nodes in each subtree, i.e. its distinct values. */
+   private final int[] distinct;
+
+   /** root of the treap. */
+   private int root;
+
+   /** first free node, with the rest chained through left. */
+   private int free;
+
+   /** state of the priority generator. */
+   private int seed = 0x2545F491;
+
+/**
+* Creates an empty window holding at most capacity values.
+* @param capacity number of values in a full window
+*/
+   public WindowSelector(int capacity) {
+      if (capacity < 1) {
+         throw new IllegalArgumentException();
+      }
+      window = new int[capacity];
+      minDeque = new long[capacity];
+      maxDeque = new long[capacity];
+      keys = new int[capacity + 1];
+      counts = new int[capacity + 1];
+      priorities = new int[capacity + 1];
+      left = new int[capacity + 1];
+      right = new int[capacity + 1];
+      distinct = new int[capacity + 1];
+      for (int i = 1; i < capacity; i++) {
+         left[i] = i + 1;
+      }
+      free = 1;
+   }
+
+/**
+* Adds v to the window, first evicting the oldest value if the window
+* is full.
+* @param v value to add
+*/
+   public void push(int v) {
+      if (size == window.length) {
+         evict();
+      }
+      long s = pushed++;
+      window[slot(s)] = v;
+      size++;
+      while (minCount > 0 && value(minDeque[back(minHead, minCount)]) >= v) {
+         minCount--;
+      }
+      minDeque[back(minHead, ++minCount)] = s;
+      while (maxCount > 0 && value(maxDeque[back(maxHead, maxCount)]) <= v) {
+         maxCount--;
+      }
+      maxDeque[back(maxHead, ++maxCount)] = s;
+      root = insert(root, v);
+   }
+
+/**
+* Removes the oldest value from the window and returns it.
+* @return return the evicted value
+*/
+   public int evict() {
+      if (size == 0) {
+         throw new IllegalArgumentException();
+      }
+      long s = pushed - size;
+      int v = value(s);
+      size--;
+      if (minDeque[minHead] == s) {
+         minHead = slot(minHead + 1);
+         minCount--;
+      }
+      if (maxDeque[maxHead] == s) {
+         maxHead = slot(maxHead + 1);
+         maxCount--;
+      }
+      root = delete(root, v);
+      return v;
+   }
+
+/**
+* Returns the number of values in the window.
+* @return return the window size
+*/
+   public int size() {
+      return size;
+   }
+
+/**
+* Selects the minimum value in the window.
+* @return return the minimum
+*/
+   public int min() {
+      if (size == 0) {
+         throw new IllegalArgumentException();
+      }
+      return value(minDeque[minHead]);
+   }
+
+/**
+* Selects the maximum value in the window.
+* @return return the maximum
+*/
+   public int max() {
+      if (size == 0) {
+         throw new IllegalArgumentException();
+      }
+      return value(maxDeque[maxHead]);
+   }
+
+/**
+* Selects the kth minimum distinct value in the window.
+* @param k number of smallest
+* @return return the kth minimum
+*/
+   public int kmin(int k) {
+      if (k < 1 || k > distinct[root]) {
+         throw new IllegalArgumentException();
+      }
+      int t = root;
+      while (true) {
+         int below = distinct[left[t]];
+         if (k <= below) {
+            t = left[t];
+         }
+         else if (k == below + 1) {
+            return keys[t];
+         }
+         else {
+            k -= below + 1;
+            t = right[t];
+         }
+      }
+   }
+
+/**
+* Selects the kth maximum distinct value in the window.
+* @param k number of largest
+* @return return the kth maximum
+*/
+   public int kmax(int k) {
+      if (k < 1 || k > distinct[root]) {
+         throw new IllegalArgumentException();
+      }
+      return kmin(distinct[root] - k + 1);
+   }
+
+/**
+* Returns the slot of the window or a deque that number s maps to.
+* @param s value number or deque position
+* @return return the slot
+*/
+   private int slot(long s) {
+      return (int) (s % window.length);
+   }
+
+/**
+* Returns the value numbered s, which must still be in the window.
+* @param s value number
+* @return return the value
+*/
+   private int value(long s) {
+      return window[slot(s)];
+   }
+
+/**
+* Returns the slot of the last of count entries of a deque.
+* @param head slot of the first entry
+* @param count number of entries
+* @return return the slot
+*/
+   private int back(int head, int count) {
+      return slot((long) head + count - 1);
+   }
+
+/**
+* Adds one occurrence of key to subtree t.
+* @param t subtree root
+* @param key value to add
+* @return return the new subtree root
+*/
+   private int insert(int t, int key) {
+      if (t == 0) {
+         t = free;
+         free = left[t];
+         keys[t] = key;
+         counts[t] = 1;
+         seed ^= seed << 13;
+         seed ^= seed >>> 17;
+         seed ^= seed << 5;
+         priorities[t] = seed;
+         left[t] = 0;
+         right[t] = 0;
+         distinct[t] = 1;
+         return t;
+      }
+      if (key == keys[t]) {
+         counts[t]++;
+         return t;
+      }
+      if (key < keys[t]) {
+         left[t] = insert(left[t], key);
+         if (priorities[left[t]] > priorities[t]) {
+            t = rotateRight(t);
+         }
+      }
+      else {
+         right[t] = insert(right[t], key);
+         if (priorities[right[t]] > priorities[t]) {
+            t = rotateLeft(t);
+         }
+      }
+      distinct[t] = 1 + distinct[left[t]] + distinct[right[t]];
+      return t;
+   }
+
+/**
+* Removes one occurrence of key from subtree t, which must hold it.
+* @param t subtree root
+* @param key value to remove
+* @return return the new subtree root
+*/
+   private int delete(int t, int key) {
+      if (key < keys[t]) {
+         left[t] = delete(left[t], key);
+      }
+      else if (key > keys[t]) {
+         right[t] = delete(right[t], key);
+      }
+      else if (counts[t] > 1) {
+         counts[t]--;
+         return t;
+      }
+      else if (left[t] == 0 || right[t] == 0) {
+         int child = left[t] == 0 ? right[t] : left[t];
+         left[t] = free;
+         free = t;
+         return child;
+      }
+      else if (priorities[left[t]] > priorities[right[t]]) {
+         t = rotateRight(t);
+         right[t] = delete(right[t], key);
+      }
+      else {
+         t = rotateLeft(t);
+         left[t] = delete(left[t], key);
+      }
+      distinct[t] = 1 + distinct[left[t]] + distinct[right[t]];
+      return t;
+   }
+
+/**
+* Rotates the left child of t above it.
+* @param t subtree root
+* @return return the new subtree root
+*/
+   private int rotateRight(int t) {
+      int l = left[t];
+      left[t] = right[l];
+      right[l] = t;
+      distinct[t] = 1 + distinct[left[t]] + distinct[right[t]];
+      distinct[l] = 1 + distinct[left[l]] + distinct[right[l]];
+      return l;
+   }
+
+/**
+* Rotates the right child of t above it.
+* @param t subtree root
+* @return return the new subtree root
+*/
+   private int rotateLeft(int t) {
+      int r = right[t];
+      right[t] = left[r];
+      left[r] = t;
+      distinct[t] = 1 + distinct[left[t]] + distinct[right[t]];
+      distinct[r] = 1 + distinct[left[r]] + distinct[right[r]];
+      return r;
+   }
+}
@@ -0,0 +1,19 @@
+#!/bin/sh
+# Regenerates the primitive selectors from PrimitiveSelector.template.
+# Run from this directory after editing the template.
+
+gen() {
+   sed -e "s/@Name@/$1/g" -e "s/@type@/$2/g" -e "s/@Box@/$3/g" \
+       -e "s/@ordering@/$4/" PrimitiveSelector.template > "$1.java"
+}
+
+gen LongSelector long Long \
+   "Values are ordered as by Long.compare."
+gen DoubleSelector double Double \
+   "Values are totally ordered as by Double.compare: -0.0 is less than\\
+* 0.0, NaN is greater than every other value including infinity, and\\
+* all NaNs are equal to each other, so they count as one distinct value."
+gen FloatSelector float Float \
+   "Values are totally ordered as by Float.compare: -0.0f is less than\\
+* 0.0f, NaN is greater than every other value including infinity, and\\
+* all NaNs are equal to each other, so they count as one distinct value."
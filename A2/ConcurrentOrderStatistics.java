@@ -0,0 +1,392 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe multiset ordered by a Comparator that answers the Selector
+ * queries while other threads add and remove values. Values that compare
+ * equal are stored once, as the first such value added, with a count.
+ *
+ * <p>Writers update a lock-free ConcurrentSkipListMap of counts, so they
+ * never block and scale with cores. min, max, ceiling, floor and contains
+ * read the skip list directly and never block either. kmin, kmax, rank
+ * and rangeCount need positions, which a skip list does not keep, so they
+ * are answered in O(log n) from a sorted snapshot of the distinct values
+ * with cumulative counts. A snapshot is reused until it is older than the
+ * configured staleness and values have changed since it was taken; then
+ * the next such query rebuilds it in O(n) under a lock that only other
+ * snapshot readers wait on. By default a snapshot may be up to
+ * DEFAULT_MAX_STALE_MILLIS old, which bounds rebuilds to one per interval
+ * however heavy the writes. With zero staleness these answers reflect
+ * every change completed before the query began, but under continuous
+ * writes every positional query then rebuilds the snapshot, so each costs
+ * O(n) and they run one at a time.
+ *
+ * @param <T>   type of the values held
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @version 2018-02-04
+ *
+ */
+public class ConcurrentOrderStatistics<T> {
+
+   /** how old a snapshot may be by default, in milliseconds. */
+   public static final long DEFAULT_MAX_STALE_MILLIS = 10;
+
+   /** the order on the values. */
+   private final Comparator<T> comp;
+
+   /** occurrence count of each distinct value. */
+   private final ConcurrentSkipListMap<T, Integer> counts;
+
+   /** number of values held, duplicates included. */
+   private final LongAdder size = new LongAdder();
+
+   /** number of completed adds and removes. */
+   private final LongAdder modifications = new LongAdder();
+
+   /** how old a snapshot may be, in nanoseconds, before it is rebuilt. */
+   private final long maxStaleNanos;
+
+   /** held while a snapshot is rebuilt. */
+   private final ReentrantLock rebuilding = new ReentrantLock();
+
+   /** the latest snapshot, or null before the first positional query. */
+   private volatile Snapshot snapshot;
+
+
+   /**
+    * Creates an empty multiset ordered by comp whose positional queries may
+    * answer from a snapshot up to DEFAULT_MAX_STALE_MILLIS old. If comp is
+    * null, this method throws an IllegalArgumentException.
+    *
+    * @param comp    the Comparator that defines the total order on T
+    * @throw        IllegalArgumentException as per above
+    */
+   public ConcurrentOrderStatistics(Comparator<T> comp) {
+      this(comp, DEFAULT_MAX_STALE_MILLIS, TimeUnit.MILLISECONDS);
+   }
+
+
+   /**
+    * Creates an empty multiset ordered by comp whose positional queries may
+    * answer from a snapshot up to maxStale old, trading freshness for fewer
+    * rebuilds under heavy writes. A maxStale of zero always sees every
+    * completed change, at O(n) per positional query while values are being
+    * changed. If comp or unit is null or maxStale is
+    * negative, this method throws an IllegalArgumentException.
+    *
+    * @param comp     the Comparator that defines the total order on T
+    * @param maxStale how old a snapshot may be before it is rebuilt
+    * @param unit     the unit of maxStale
+    * @throw         IllegalArgumentException as per above
+    */
+   public ConcurrentOrderStatistics(Comparator<T> comp, long maxStale, TimeUnit unit) {
+      if (comp == null || unit == null || maxStale < 0) {
+         throw new IllegalArgumentException();
+      }
+      this.comp = comp;
+      this.counts = new ConcurrentSkipListMap<T, Integer>(comp);
+      this.maxStaleNanos = unit.toNanos(maxStale);
+   }
+
+
+   /**
+    * Adds one occurrence of value without blocking.
+    *
+    * @param value   the value to add
+    */
+   public void add(T value) {
+      while (true) {
+         Integer c = counts.putIfAbsent(value, 1);
+         if (c == null || counts.replace(value, c, c + 1)) {
+            break;
+         }
+      }
+      size.increment();
+      modifications.increment();
+   }
+
+
+   /**
+    * Removes one occurrence of a value equal to value, as defined by the
+    * Comparator, without blocking. Returns true if one was present.
+    *
+    * @param value   the value to remove
+    * @return        true if a value was removed
+    */
+   public boolean remove(T value) {
+      while (true) {
+         Integer c = counts.get(value);
+         if (c == null) {
+            return false;
+         }
+         if (c == 1 ? counts.remove(value, c) : counts.replace(value, c, c - 1)) {
+            size.decrement();
+            modifications.increment();
+            return true;
+         }
+      }
+   }
+
+
+   /**
+    * Returns true if a value equal to value is present.
+    *
+    * @param value   the value to look for
+    * @return        true if present
+    */
+   public boolean contains(T value) {
+      return counts.containsKey(value);
+   }
+
+
+   /**
+    * Returns the number of values held, duplicates included. Under
+    * concurrent updates this is a moment-in-time estimate.
+    *
+    * @return        the number of values
+    */
+   public long size() {
+      return size.sum();
+   }
+
+
+   /**
+    * Returns the minimum value. If there is none, this method throws a
+    * NoSuchElementException.
+    *
+    * @return        the minimum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T min() {
+      return counts.firstKey();
+   }
+
+
+   /**
+    * Returns the maximum value. If there is none, this method throws a
+    * NoSuchElementException.
+    *
+    * @return        the maximum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T max() {
+      return counts.lastKey();
+   }
+
+
+   /**
+    * Returns the smallest value greater than or equal to key. If there is
+    * none, this method throws a NoSuchElementException.
+    *
+    * @param key     the reference value
+    * @return        the ceiling value of key
+    * @throw        NoSuchElementException as per above
+    */
+   public T ceiling(T key) {
+      T t = counts.ceilingKey(key);
+      if (t == null) {
+         throw new NoSuchElementException();
+      }
+      return t;
+   }
+
+
+   /**
+    * Returns the largest value less than or equal to key. If there is none,
+    * this method throws a NoSuchElementException.
+    *
+    * @param key     the reference value
+    * @return        the floor value of key
+    * @throw        NoSuchElementException as per above
+    */
+   public T floor(T key) {
+      T t = counts.floorKey(key);
+      if (t == null) {
+         throw new NoSuchElementException();
+      }
+      return t;
+   }
+
+
+   /**
+    * Returns the kth minimum distinct value. If there is no kth minimum
+    * value, this method throws a NoSuchElementException.
+    *
+    * @param k       the k-selection value
+    * @return        the kth minimum value
+    * @throw        NoSuchElementException as per above
+    */
+   @SuppressWarnings("unchecked")
+   public T kmin(int k) {
+      Snapshot s = snapshot();
+      if (k < 1 || k > s.values.length) {
+         throw new NoSuchElementException();
+      }
+      return (T) s.values[k - 1];
+   }
+
+
+   /**
+    * Returns the kth maximum distinct value. If there is no kth maximum
+    * value, this method throws a NoSuchElementException.
+    *
+    * @param k       the k-selection value
+    * @return        the kth maximum value
+    * @throw        NoSuchElementException as per above
+    */
+   @SuppressWarnings("unchecked")
+   public T kmax(int k) {
+      Snapshot s = snapshot();
+      if (k < 1 || k > s.values.length) {
+         throw new NoSuchElementException();
+      }
+      return (T) s.values[s.values.length - k];
+   }
+
+
+   /**
+    * Returns the number of distinct values less than key.
+    *
+    * @param key     the reference value
+    * @return        the number of distinct values less than key
+    */
+   public int rank(T key) {
+      return bound(snapshot(), key, false);
+   }
+
+
+   /**
+    * Returns how many values, duplicates included, are greater than or
+    * equal to low and less than or equal to high.
+    *
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @return        the number of values in range
+    */
+   public long rangeCount(T low, T high) {
+      if (comp.compare(low, high) > 0) {
+         return 0;
+      }
+      Snapshot s = snapshot();
+      return s.ends[bound(s, high, true)] - s.ends[bound(s, low, false)];
+   }
+
+
+   /**
+    * Returns the index of the first snapshot value not less than key, or
+    * greater than key if inclusive is true.
+    *
+    * @param s          the snapshot to search
+    * @param key        the reference value
+    * @param inclusive  whether values equal to key come before the index
+    * @return           the index
+    */
+   @SuppressWarnings("unchecked")
+   private int bound(Snapshot s, T key, boolean inclusive) {
+      int lo = 0;
+      int hi = s.values.length;
+      while (lo < hi) {
+         int mid = (lo + hi) >>> 1;
+         int c = comp.compare((T) s.values[mid], key);
+         if (c < 0 || (inclusive && c == 0)) {
+            lo = mid + 1;
+         }
+         else {
+            hi = mid;
+         }
+      }
+      return lo;
+   }
+
+
+   /**
+    * Returns a snapshot fresh enough to answer from, rebuilding it if the
+    * current one is stale.
+    *
+    * @return        the snapshot
+    */
+   private Snapshot snapshot() {
+      Snapshot s = snapshot;
+      if (s != null && fresh(s)) {
+         return s;
+      }
+      rebuilding.lock();
+      try {
+         s = snapshot;
+         if (s == null || !fresh(s)) {
+            s = build();
+            snapshot = s;
+         }
+         return s;
+      }
+      finally {
+         rebuilding.unlock();
+      }
+   }
+
+
+   /**
+    * Returns true if s is young enough or nothing has changed since it was
+    * taken.
+    *
+    * @param s       the snapshot to check
+    * @return        true if s can be answered from
+    */
+   private boolean fresh(Snapshot s) {
+      return System.nanoTime() - s.takenAt <= maxStaleNanos
+         || s.modifications == modifications.sum();
+   }
+
+
+   /**
+    * Copies the distinct values and cumulative counts out of the skip list.
+    * The modification count is read first, so a change that races with
+    * the copy makes the snapshot stale rather than silently lost.
+    *
+    * @return        a new snapshot
+    */
+   private Snapshot build() {
+      long mods = modifications.sum();
+      long takenAt = System.nanoTime();
+      List<Object> values = new ArrayList<Object>();
+      long[] ends = new long[16];
+      for (Map.Entry<T, Integer> e : counts.entrySet()) {
+         if (values.size() + 1 == ends.length) {
+            ends = Arrays.copyOf(ends, ends.length * 2);
+         }
+         values.add(e.getKey());
+         ends[values.size()] = ends[values.size() - 1] + e.getValue();
+      }
+      return new Snapshot(values.toArray(), Arrays.copyOf(ends, values.size() + 1),
+                          mods, takenAt);
+   }
+
+
+   /**
+    * An immutable sorted copy of the distinct values. ends[i] is the number
+    * of values, duplicates included, in values[0..i-1].
+    */
+   private static final class Snapshot {
+      private final Object[] values;
+      private final long[] ends;
+      private final long modifications;
+      private final long takenAt;
+
+      Snapshot(Object[] values, long[] ends, long modifications, long takenAt) {
+         this.values = values;
+         this.ends = ends;
+         this.modifications = modifications;
+         this.takenAt = takenAt;
+      }
+   }
+
+}
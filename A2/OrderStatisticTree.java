@@ -0,0 +1,648 @@
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A mutable Collection ordered by a Comparator that answers the Selector
+ * queries in O(log n) without copying. Values that compare equal share
+ * one node, which keeps every such value in the order it was added;
+ * queries answer with the earliest one still present, and iteration
+ * yields them all, in ascending order and then in the order added. The
+ * tree is an AVL tree whose nodes also record the number of distinct
+ * values and of all values in their subtree.
+ *
+ * <p>Selector.min, max, kmin, kmax, ceiling and floor recognize this
+ * class and answer from the tree when called with its comparator.
+ * This class is not thread safe.
+ *
+ * @param <T>   type of the values held
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @version 2018-02-04
+ *
+ */
+public class OrderStatisticTree<T> extends AbstractCollection<T> {
+
+   /** the order on the values. */
+   private final Comparator<T> comp;
+
+   /** root of the tree, or null when empty. */
+   private Node<T> root;
+
+
+   /**
+    * Creates an empty tree ordered by comp. If comp is null, this method
+    * throws an IllegalArgumentException.
+    *
+    * @param comp    the Comparator that defines the total order on T
+    * @throw        IllegalArgumentException as per above
+    */
+   public OrderStatisticTree(Comparator<T> comp) {
+      if (comp == null) {
+         throw new IllegalArgumentException();
+      }
+      this.comp = comp;
+   }
+
+
+   /**
+    * Returns the Comparator this tree is ordered by.
+    *
+    * @return        the Comparator of this tree
+    */
+   public Comparator<T> comparator() {
+      return comp;
+   }
+
+
+   /**
+    * Adds one occurrence of value in O(log n). Always returns true.
+    *
+    * @param value   the value to add
+    * @return        true
+    */
+   @Override
+   public boolean add(T value) {
+      root = insert(root, value);
+      return true;
+   }
+
+
+   /**
+    * Removes one occurrence of a value equal to o, as defined by the
+    * Comparator, in O(log n) plus the number of such values. The earliest
+    * of them that equals o is removed, or the earliest of them if none
+    * does. Returns true if such a value was present.
+    *
+    * @param o       the value to remove
+    * @return        true if this tree changed
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public boolean remove(Object o) {
+      T value = (T) o;
+      Node<T> n = find(value);
+      if (n == null) {
+         return false;
+      }
+      root = delete(root, value, n.slotOf(o));
+      return true;
+   }
+
+
+   /**
+    * Returns true if a value equal to o, as defined by the Comparator, is
+    * present.
+    *
+    * @param o       the value to look for
+    * @return        true if present
+    */
+   @Override
+   @SuppressWarnings("unchecked")
+   public boolean contains(Object o) {
+      return find((T) o) != null;
+   }
+
+
+   /**
+    * Returns the number of values held, duplicates included.
+    *
+    * @return        the number of values
+    */
+   @Override
+   public int size() {
+      return total(root);
+   }
+
+
+   /**
+    * Returns the number of distinct values held.
+    *
+    * @return        the number of distinct values
+    */
+   public int distinctSize() {
+      return distinct(root);
+   }
+
+
+   /**
+    * Removes every value.
+    */
+   @Override
+   public void clear() {
+      root = null;
+   }
+
+
+   /**
+    * Returns an iterator over the values in ascending order, values that
+    * compare equal in the order they were added. The iterator supports
+    * remove, which takes O(log n) plus the number of values equal to the
+    * one removed.
+    *
+    * @return        an iterator over the values
+    */
+   @Override
+   public Iterator<T> iterator() {
+      return new Iterator<T>() {
+         private final Deque<Node<T>> path = new ArrayDeque<Node<T>>();
+         private Node<T> current;
+         private int slot;
+         private int index;
+         private boolean removable;
+
+         {
+            descend(root);
+         }
+
+         private void descend(Node<T> n) {
+            for (; n != null; n = n.left) {
+               path.push(n);
+            }
+         }
+
+         /** Positions the iterator so that the value at index is next. */
+         private void seek(int index) {
+            path.clear();
+            current = null;
+            Node<T> n = root;
+            while (n != null) {
+               if (index < total(n.left)) {
+                  path.push(n);
+                  n = n.left;
+               }
+               else if (index < total(n.left) + n.count) {
+                  current = n;
+                  slot = index - total(n.left);
+                  descend(n.right);
+                  return;
+               }
+               else {
+                  index -= total(n.left) + n.count;
+                  n = n.right;
+               }
+            }
+         }
+
+         @Override
+         public boolean hasNext() {
+            return (current != null && slot < current.count) || !path.isEmpty();
+         }
+
+         @Override
+         public T next() {
+            if (current == null || slot == current.count) {
+               if (path.isEmpty()) {
+                  throw new NoSuchElementException();
+               }
+               current = path.pop();
+               slot = 0;
+               descend(current.right);
+            }
+            index++;
+            removable = true;
+            return current.get(slot++);
+         }
+
+         @Override
+         public void remove() {
+            if (!removable) {
+               throw new IllegalStateException();
+            }
+            removable = false;
+            root = delete(root, current.value(), slot - 1);
+            seek(--index);
+         }
+      };
+   }
+
+
+   /**
+    * Returns the minimum value. If this tree is empty, this method throws a
+    * NoSuchElementException.
+    *
+    * @return        the minimum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T min() {
+      return kmin(1);
+   }
+
+
+   /**
+    * Returns the maximum value. If this tree is empty, this method throws a
+    * NoSuchElementException.
+    *
+    * @return        the maximum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T max() {
+      return kmax(1);
+   }
+
+
+   /**
+    * Returns the kth minimum distinct value in O(log n). If there is no kth
+    * minimum value, this method throws a NoSuchElementException.
+    *
+    * @param k       the k-selection value
+    * @return        the kth minimum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T kmin(int k) {
+      if (k < 1 || k > distinct(root)) {
+         throw new NoSuchElementException();
+      }
+      Node<T> n = root;
+      while (true) {
+         int below = distinct(n.left);
+         if (k <= below) {
+            n = n.left;
+         }
+         else if (k == below + 1) {
+            return n.value();
+         }
+         else {
+            k -= below + 1;
+            n = n.right;
+         }
+      }
+   }
+
+
+   /**
+    * Returns the kth maximum distinct value in O(log n). If there is no kth
+    * maximum value, this method throws a NoSuchElementException.
+    *
+    * @param k       the k-selection value
+    * @return        the kth maximum value
+    * @throw        NoSuchElementException as per above
+    */
+   public T kmax(int k) {
+      if (k < 1 || k > distinct(root)) {
+         throw new NoSuchElementException();
+      }
+      return kmin(distinct(root) - k + 1);
+   }
+
+
+   /**
+    * Returns the number of distinct values less than key, so that
+    * kmin(rank(key) + 1) is the ceiling of key.
+    *
+    * @param key     the reference value
+    * @return        the number of distinct values less than key
+    */
+   public int rank(T key) {
+      int rank = 0;
+      Node<T> n = root;
+      while (n != null) {
+         if (comp.compare(key, n.value()) <= 0) {
+            n = n.left;
+         }
+         else {
+            rank += distinct(n.left) + 1;
+            n = n.right;
+         }
+      }
+      return rank;
+   }
+
+
+   /**
+    * Returns the smallest value greater than or equal to key. If there is
+    * none, this method throws a NoSuchElementException.
+    *
+    * @param key     the reference value
+    * @return        the ceiling value of key
+    * @throw        NoSuchElementException as per above
+    */
+   public T ceiling(T key) {
+      Node<T> best = null;
+      Node<T> n = root;
+      while (n != null) {
+         if (comp.compare(n.value(), key) >= 0) {
+            best = n;
+            n = n.left;
+         }
+         else {
+            n = n.right;
+         }
+      }
+      if (best == null) {
+         throw new NoSuchElementException();
+      }
+      return best.value();
+   }
+
+
+   /**
+    * Returns the largest value less than or equal to key. If there is none,
+    * this method throws a NoSuchElementException.
+    *
+    * @param key     the reference value
+    * @return        the floor value of key
+    * @throw        NoSuchElementException as per above
+    */
+   public T floor(T key) {
+      Node<T> best = null;
+      Node<T> n = root;
+      while (n != null) {
+         if (comp.compare(n.value(), key) <= 0) {
+            best = n;
+            n = n.right;
+         }
+         else {
+            n = n.left;
+         }
+      }
+      if (best == null) {
+         throw new NoSuchElementException();
+      }
+      return best.value();
+   }
+
+
+   /**
+    * Returns how many values, duplicates included, are greater than or
+    * equal to low and less than or equal to high. This is the size of the
+    * Collection Selector.range would return for the same bounds.
+    *
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @return        the number of values in range
+    */
+   public int rangeCount(T low, T high) {
+      if (comp.compare(low, high) > 0) {
+         return 0;
+      }
+      return countBelow(high, true) - countBelow(low, false);
+   }
+
+
+   /**
+    * Returns how many values are less than key, or less than or equal to
+    * key if inclusive is true.
+    *
+    * @param key        the reference value
+    * @param inclusive  whether values equal to key count
+    * @return           the number of values
+    */
+   private int countBelow(T key, boolean inclusive) {
+      int below = 0;
+      Node<T> n = root;
+      while (n != null) {
+         int c = comp.compare(n.value(), key);
+         if (c < 0 || (inclusive && c == 0)) {
+            below += total(n.left) + n.count;
+            n = n.right;
+         }
+         else {
+            n = n.left;
+         }
+      }
+      return below;
+   }
+
+
+   /**
+    * Returns the node holding a value equal to key, or null.
+    *
+    * @param key     the value to look for
+    * @return        the node, or null
+    */
+   private Node<T> find(T key) {
+      Node<T> n = root;
+      while (n != null) {
+         int c = comp.compare(key, n.value());
+         if (c == 0) {
+            return n;
+         }
+         n = c < 0 ? n.left : n.right;
+      }
+      return null;
+   }
+
+
+   /**
+    * Adds one occurrence of value to subtree n.
+    *
+    * @param n       the subtree root
+    * @param value   the value to add
+    * @return        the new subtree root
+    */
+   private Node<T> insert(Node<T> n, T value) {
+      if (n == null) {
+         return new Node<T>(value);
+      }
+      int c = comp.compare(value, n.value());
+      if (c == 0) {
+         n.add(value);
+         n.total++;
+         return n;
+      }
+      if (c < 0) {
+         n.left = insert(n.left, value);
+      }
+      else {
+         n.right = insert(n.right, value);
+      }
+      return balance(n);
+   }
+
+
+   /**
+    * Removes the value in the given slot of the node of subtree n holding
+    * values equal to key, which must be present.
+    *
+    * @param n       the subtree root
+    * @param key     a value equal to the one to remove
+    * @param slot    the position of the value among those equal to key
+    * @return        the new subtree root
+    */
+   private Node<T> delete(Node<T> n, T key, int slot) {
+      int c = comp.compare(key, n.value());
+      if (c < 0) {
+         n.left = delete(n.left, key, slot);
+      }
+      else if (c > 0) {
+         n.right = delete(n.right, key, slot);
+      }
+      else if (n.count > 1) {
+         n.take(slot);
+         n.total--;
+         return n;
+      }
+      else if (n.left == null || n.right == null) {
+         return n.left == null ? n.right : n.left;
+      }
+      else {
+         Node<T> next = n.right;
+         while (next.left != null) {
+            next = next.left;
+         }
+         n.right = deleteMin(n.right);
+         next.left = n.left;
+         next.right = n.right;
+         n = next;
+      }
+      return balance(n);
+   }
+
+
+   /**
+    * Unlinks the minimum node of subtree n.
+    *
+    * @param n       the subtree root
+    * @return        the new subtree root
+    */
+   private Node<T> deleteMin(Node<T> n) {
+      if (n.left == null) {
+         return n.right;
+      }
+      n.left = deleteMin(n.left);
+      return balance(n);
+   }
+
+
+   /**
+    * Refreshes the sizes of n and restores the AVL balance at n.
+    *
+    * @param n       the subtree root
+    * @return        the new subtree root
+    */
+   private Node<T> balance(Node<T> n) {
+      update(n);
+      int lean = height(n.left) - height(n.right);
+      if (lean > 1) {
+         if (height(n.left.left) < height(n.left.right)) {
+            n.left = rotateLeft(n.left);
+         }
+         return rotateRight(n);
+      }
+      if (lean < -1) {
+         if (height(n.right.right) < height(n.right.left)) {
+            n.right = rotateRight(n.right);
+         }
+         return rotateLeft(n);
+      }
+      return n;
+   }
+
+
+   /**
+    * Rotates the left child of n above it.
+    *
+    * @param n       the subtree root
+    * @return        the new subtree root
+    */
+   private Node<T> rotateRight(Node<T> n) {
+      Node<T> l = n.left;
+      n.left = l.right;
+      l.right = n;
+      update(n);
+      update(l);
+      return l;
+   }
+
+
+   /**
+    * Rotates the right child of n above it.
+    *
+    * @param n       the subtree root
+    * @return        the new subtree root
+    */
+   private Node<T> rotateLeft(Node<T> n) {
+      Node<T> r = n.right;
+      n.right = r.left;
+      r.left = n;
+      update(n);
+      update(r);
+      return r;
+   }
+
+
+   /**
+    * Recomputes the height and sizes of n from its children.
+    *
+    * @param n       the node to update
+    */
+   private void update(Node<T> n) {
+      n.height = 1 + Math.max(height(n.left), height(n.right));
+      n.distinct = 1 + distinct(n.left) + distinct(n.right);
+      n.total = n.count + total(n.left) + total(n.right);
+   }
+
+
+   private static int height(Node<?> n) {
+      return n == null ? 0 : n.height;
+   }
+
+
+   private static int distinct(Node<?> n) {
+      return n == null ? 0 : n.distinct;
+   }
+
+
+   private static int total(Node<?> n) {
+      return n == null ? 0 : n.total;
+   }
+
+
+   /**
+    * A tree node: the values equal to one distinct value, in the order
+    * they were added, in the first count slots of values.
+    */
+   private static final class Node<T> {
+      private Object[] values = new Object[1];
+      private int count = 1;
+      private int height = 1;
+      private int distinct = 1;
+      private int total = 1;
+      private Node<T> left;
+      private Node<T> right;
+
+      Node(T value) {
+         values[0] = value;
+      }
+
+      /** Returns the earliest value, which stands for the node. */
+      T value() {
+         return get(0);
+      }
+
+      @SuppressWarnings("unchecked")
+      T get(int slot) {
+         return (T) values[slot];
+      }
+
+      void add(T value) {
+         if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+         }
+         values[count++] = value;
+      }
+
+      /** Removes the value in slot, keeping the others in order. */
+      void take(int slot) {
+         System.arraycopy(values, slot + 1, values, slot, count - slot - 1);
+         values[--count] = null;
+      }
+
+      /** Returns the slot of the earliest value that equals o, or 0. */
+      int slotOf(Object o) {
+         for (int i = 0; i < count; i++) {
+            if (Objects.equals(values[i], o)) {
+               return i;
+            }
+         }
+         return 0;
+      }
+   }
+
+}
@@ -1,9 +1,24 @@
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * Defines a library of selection methods on Collections.
@@ -29,6 +44,8 @@ public final class Selector {
     * Comparator comp. If either coll or comp is null, this method throws an
     * IllegalArgumentException. If coll is empty, this method throws a
     * NoSuchElementException. This method will not change coll in any way.
+    * If coll is a SortedSet ordered by comp, or a List marked sorted by
+    * asSorted, the minimum is read off the front without a scan.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the minimum is selected
@@ -42,9 +59,21 @@ public final class Selector {
       if (coll == null || comp == null) {
          throw new IllegalArgumentException();
       }
-      else if (coll.size() == 0) {
+      else if (coll.isEmpty()) {
          throw new NoSuchElementException();
       }
+      SortedSet<T> set = sortedSet(coll, comp);
+      if (set != null) {
+         return set.first();
+      }
+      SortedList<T> list = sortedList(coll, comp);
+      if (list != null) {
+         return list.get(0);
+      }
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.min();
+      }
       else {
          Iterator<T> itr = coll.iterator();
          T minT = itr.next();
@@ -64,6 +93,8 @@ public final class Selector {
     * Comparator comp. If either coll or comp is null, this method throws an
     * IllegalArgumentException. If coll is empty, this method throws a
     * NoSuchElementException. This method will not change coll in any way.
+    * If coll is a SortedSet ordered by comp, or a List marked sorted by
+    * asSorted, the maximum is found without a scan.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the maximum is selected
@@ -77,9 +108,21 @@ public final class Selector {
       if (coll == null || comp == null) {
          throw new IllegalArgumentException();
       }
-      else if (coll.size() == 0) {
+      else if (coll.isEmpty()) {
          throw new NoSuchElementException();
       }
+      SortedSet<T> set = sortedSet(coll, comp);
+      if (set != null) {
+         return set.last();
+      }
+      SortedList<T> list = sortedList(coll, comp);
+      if (list != null) {
+         return list.get(list.lowerBound(list.get(list.size() - 1)));
+      }
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.max();
+      }
       else {
          Iterator<T> itr = coll.iterator();
       
@@ -101,7 +144,8 @@ public final class Selector {
     * Comparator comp. If either coll or comp is null, this method throws an
     * IllegalArgumentException. If coll is empty or if there is no kth minimum
     * value, this method throws a NoSuchElementException. This method will not
-    * change coll in any way.
+    * change coll in any way. If coll is an OrderStatisticTree ordered by
+    * comp, this takes O(log n) and copies nothing.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the kth minimum is selected
@@ -119,26 +163,11 @@ public final class Selector {
       if (coll.isEmpty() || k < 1 || k > coll.size()) {
          throw new NoSuchElementException();
       }
-   
-      ArrayList<T> list = new ArrayList<T>(coll);
-   
-      
-      for (int i = 0; i < list.size() - 1; i++) {
-         for (int j = list.size() - 1; j > i; j--) {
-            if (comp.compare(list.get(i), list.get(j)) == 0) {
-               list.remove(j);
-            }
-         }
-      }
-     
-      java.util.Collections.<T>sort(list, comp);
-   
-      if (k > list.size()) {
-         throw new NoSuchElementException();
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.kmin(k);
       }
-      
-      return list.get(k - 1);
-      
+      return firstEqual(coll, kth(coll.toArray(), k, comp), comp);
    }
 
 
@@ -147,7 +176,8 @@ public final class Selector {
     * Comparator comp. If either coll or comp is null, this method throws an
     * IllegalArgumentException. If coll is empty or if there is no kth maximum
     * value, this method throws a NoSuchElementException. This method will not
-    * change coll in any way.
+    * change coll in any way. If coll is an OrderStatisticTree ordered by
+    * comp, this takes O(log n) and copies nothing.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the kth maximum is selected
@@ -156,7 +186,7 @@ public final class Selector {
     * @return        the kth maximum value in coll
     * @throw        IllegalArgumentException as per above
     * @throw        NoSuchElementException as per above
-\       */
+    */
    public static <T> T kmax(Collection<T> coll, int k, Comparator<T> comp) {
    
       if (coll == null || comp == null) {
@@ -165,28 +195,178 @@ public final class Selector {
       if (coll.isEmpty() || k < 1 || k > coll.size()) {
          throw new NoSuchElementException();
       }
-   
-      List<T> list = new ArrayList<T>();
-      for (T t : coll) {
-         list.add(t);
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.kmax(k);
       }
-   
-      for (int i = 0; i < list.size() - 1; i++) {
-         for (int j = list.size() - 1; j > i; j--) {
-            if (comp.compare(list.get(i), list.get(j)) == 0) {
-               list.remove(j);
+      return firstEqual(coll, kth(coll.toArray(), k, Collections.reverseOrder(comp)), comp);
+   }
+
+
+   /**
+    * Returns the k smallest values from the Iterable src as defined by the
+    * Comparator comp, in ascending order. src is read once through a bounded
+    * heap, so this takes O(k) space and O(n log k) time. If src has fewer
+    * than k values, all of them are returned. Among equal values at the
+    * boundary, those seen first are kept. If src, comp is null or k is less
+    * than 1, this method throws an IllegalArgumentException. If src is
+    * empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param src     the values from which the smallest are selected
+    * @param k       the number of values to select
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the k smallest values in ascending order
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> List<T> bottomK(Iterable<T> src, int k, Comparator<T> comp) {
+      if (src == null) {
+         throw new IllegalArgumentException();
+      }
+      return bottomK(src.iterator(), k, comp, false);
+   }
+
+
+   /**
+    * Returns the k smallest values remaining in the Stream src, as
+    * bottomK(Iterable, int, Comparator) does. src is consumed.
+    *
+    * @param <T>     type variable
+    * @param src     the values from which the smallest are selected
+    * @param k       the number of values to select
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the k smallest values in ascending order
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> List<T> bottomK(Stream<T> src, int k, Comparator<T> comp) {
+      if (src == null) {
+         throw new IllegalArgumentException();
+      }
+      return bottomK(src.iterator(), k, comp, false);
+   }
+
+
+   /**
+    * Returns the k smallest values remaining in the Iterator src, as
+    * bottomK(Iterable, int, Comparator) does, optionally counting values
+    * that compare equal only once. In distinct mode the first of each run of
+    * equal values is the one returned, as with kmin. src is read once, so
+    * single-pass sources such as database cursors can be used.
+    *
+    * @param <T>      type variable
+    * @param src      the values from which the smallest are selected
+    * @param k        the number of values to select
+    * @param comp     the Comparator that defines the total order on T
+    * @param distinct whether equal values count once
+    * @return         the k smallest values in ascending order
+    * @throw         IllegalArgumentException as per above
+    * @throw         NoSuchElementException as per above
+    */
+   public static <T> List<T> bottomK(Iterator<T> src, int k, Comparator<T> comp,
+                                     boolean distinct) {
+      if (src == null || comp == null || k < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (!src.hasNext()) {
+         throw new NoSuchElementException();
+      }
+      if (distinct) {
+         TreeSet<T> kept = new TreeSet<T>(comp);
+         while (src.hasNext()) {
+            T t = src.next();
+            if (kept.size() < k) {
+               kept.add(t);
+            }
+            else if (comp.compare(t, kept.last()) < 0 && kept.add(t)) {
+               kept.pollLast();
             }
          }
+         return new ArrayList<T>(kept);
       }
-      java.util.Collections.<T>sort(list, comp);
-   
-         
-      if (k > list.size()) {
-         throw new NoSuchElementException();
+      PriorityQueue<T> heap = new PriorityQueue<T>(Math.min(k, 1024),
+                                                   Collections.reverseOrder(comp));
+      while (src.hasNext()) {
+         T t = src.next();
+         if (heap.size() < k) {
+            heap.offer(t);
+         }
+         else if (comp.compare(t, heap.peek()) < 0) {
+            heap.poll();
+            heap.offer(t);
+         }
       }
-      
-      return list.get(list.size() - k);
-      
+      @SuppressWarnings("unchecked")
+      T[] sorted = (T[]) new Object[heap.size()];
+      for (int i = sorted.length - 1; i >= 0; i--) {
+         sorted[i] = heap.poll();
+      }
+      return new ArrayList<T>(Arrays.asList(sorted));
+   }
+
+
+   /**
+    * Returns the k largest values from the Iterable src as defined by the
+    * Comparator comp, in descending order. Otherwise behaves as
+    * bottomK(Iterable, int, Comparator).
+    *
+    * @param <T>     type variable
+    * @param src     the values from which the largest are selected
+    * @param k       the number of values to select
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the k largest values in descending order
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> List<T> topK(Iterable<T> src, int k, Comparator<T> comp) {
+      if (src == null) {
+         throw new IllegalArgumentException();
+      }
+      return topK(src.iterator(), k, comp, false);
+   }
+
+
+   /**
+    * Returns the k largest values remaining in the Stream src, as
+    * topK(Iterable, int, Comparator) does. src is consumed.
+    *
+    * @param <T>     type variable
+    * @param src     the values from which the largest are selected
+    * @param k       the number of values to select
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the k largest values in descending order
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> List<T> topK(Stream<T> src, int k, Comparator<T> comp) {
+      if (src == null) {
+         throw new IllegalArgumentException();
+      }
+      return topK(src.iterator(), k, comp, false);
+   }
+
+
+   /**
+    * Returns the k largest values remaining in the Iterator src, in
+    * descending order, optionally counting values that compare equal only
+    * once. Otherwise behaves as bottomK(Iterator, int, Comparator, boolean).
+    *
+    * @param <T>      type variable
+    * @param src      the values from which the largest are selected
+    * @param k        the number of values to select
+    * @param comp     the Comparator that defines the total order on T
+    * @param distinct whether equal values count once
+    * @return         the k largest values in descending order
+    * @throw         IllegalArgumentException as per above
+    * @throw         NoSuchElementException as per above
+    */
+   public static <T> List<T> topK(Iterator<T> src, int k, Comparator<T> comp,
+                                  boolean distinct) {
+      if (comp == null) {
+         throw new IllegalArgumentException();
+      }
+      return bottomK(src, k, Collections.reverseOrder(comp), distinct);
    }
 
 
@@ -200,6 +380,10 @@ public final class Selector {
     * if coll is empty, this method throws a NoSuchElementException. If either
     * coll or comp is null, this method throws an IllegalArgumentException. This
     * method will not change coll in any way.
+    * If coll is a NavigableSet ordered by comp, or a List marked sorted by
+    * asSorted, the returned Collection is a read-only view of the matching
+    * part of coll, found by navigation or binary search, rather than a copy;
+    * later changes to coll show through it.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the range values are selected
@@ -215,24 +399,115 @@ public final class Selector {
       if (coll == null || comp == null) {
          throw new IllegalArgumentException();
       }
-      else if (coll.size() == 0) {
+      else if (coll.isEmpty() || comp.compare(low, high) > 0) {
          throw new NoSuchElementException();
       }
-      else {
-         Collection<T> newColl = new ArrayList<T>();
+      Collection<T> newColl = rangeView(coll, low, high, comp);
+      if (newColl == null) {
+         newColl = new ArrayList<T>();
          for (T t : coll) {
             if ((comp.compare(t, high) <= 0) && (comp.compare(t, low) >= 0)) {
                newColl.add(t);
             }
          }
-      
-         if (newColl.size() == 0) {
-            throw new NoSuchElementException();
-         }
-      
-         return newColl;
       }
-   
+      if (newColl.isEmpty()) {
+         throw new NoSuchElementException();
+      }
+      return newColl;
+   }
+
+
+   /**
+    * Returns a lazy Stream of the values in the Collection coll that are
+    * greater than or equal to low and less than or equal to high, as
+    * defined by the Comparator comp, in coll's iteration order. Nothing is
+    * copied: values are tested as the stream is consumed, so operations
+    * such as findFirst and limit stop early, and the stream splits along
+    * coll's own Spliterator when made parallel. If coll is a NavigableSet
+    * ordered by comp, or a List marked sorted by asSorted, the stream only
+    * visits the matching part of coll. The stream is empty if no values
+    * match. If either coll or comp is null, this method throws an
+    * IllegalArgumentException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the range values are selected
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @param comp    the Comparator that defines the total order on T
+    * @return        a Stream of values between low and high
+    * @throw        IllegalArgumentException as per above
+    */
+   public static <T> Stream<T> rangeStream(Collection<T> coll, T low, T high,
+                                           Comparator<T> comp) {
+      if (coll == null || comp == null) {
+         throw new IllegalArgumentException();
+      }
+      if (comp.compare(low, high) > 0) {
+         return Stream.empty();
+      }
+      Collection<T> view = rangeView(coll, low, high, comp);
+      if (view != null) {
+         return view.stream();
+      }
+      return coll.stream().filter(t -> comp.compare(t, low) >= 0 && comp.compare(t, high) <= 0);
+   }
+
+
+   /**
+    * Returns a lazy Iterator over the values in the Collection coll that are
+    * greater than or equal to low and less than or equal to high, as
+    * defined by the Comparator comp, in coll's iteration order. Like
+    * rangeStream, nothing is copied and sorted inputs are navigated rather
+    * than scanned. If either coll or comp is null, this method throws an
+    * IllegalArgumentException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the range values are selected
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @param comp    the Comparator that defines the total order on T
+    * @return        an Iterator over values between low and high
+    * @throw        IllegalArgumentException as per above
+    */
+   public static <T> Iterator<T> rangeIterator(Collection<T> coll, T low, T high,
+                                               Comparator<T> comp) {
+      if (coll == null || comp == null) {
+         throw new IllegalArgumentException();
+      }
+      if (comp.compare(low, high) > 0) {
+         return Collections.<T>emptyIterator();
+      }
+      Collection<T> view = rangeView(coll, low, high, comp);
+      if (view != null) {
+         return view.iterator();
+      }
+      return new RangeIterator<T>(coll.iterator(), low, high, comp);
+   }
+
+
+   /**
+    * Returns a lazy Iterator over the values remaining in the Iterator src
+    * that are greater than or equal to low and less than or equal to high,
+    * as defined by the Comparator comp. src is advanced only as the
+    * returned Iterator is, so single-pass sources can be filtered without
+    * buffering. If either src or comp is null, this method throws an
+    * IllegalArgumentException.
+    *
+    * @param <T>     type variable
+    * @param src     the values from which the range values are selected
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @param comp    the Comparator that defines the total order on T
+    * @return        an Iterator over values between low and high
+    * @throw        IllegalArgumentException as per above
+    */
+   public static <T> Iterator<T> rangeIterator(Iterator<T> src, T low, T high,
+                                               Comparator<T> comp) {
+      if (src == null || comp == null) {
+         throw new IllegalArgumentException();
+      }
+      return new RangeIterator<T>(src, low, high, comp);
    }
 
 
@@ -242,7 +517,9 @@ public final class Selector {
     * does not have to be in coll. If coll or comp is null, this method throws
     * an IllegalArgumentException. If coll is empty or if there is no
     * qualifying value, this method throws a NoSuchElementException. This
-    * method will not change coll in any way.
+    * method will not change coll in any way. If coll is a SortedSet ordered
+    * by comp, or a List marked sorted by asSorted, this takes O(log n);
+    * otherwise coll is scanned once.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the ceiling value is selected
@@ -256,24 +533,41 @@ public final class Selector {
       if (coll == null || comp == null) {
          throw new IllegalArgumentException();
       }
-      else if (coll.size() == 0) {
+      else if (coll.isEmpty()) {
          throw new NoSuchElementException();
       }  
-      else {
-         Collection<T> newColl = new ArrayList<T>();
-      
-         for (T t : coll) {
-            if (comp.compare(t, key) >= 0) {
-               newColl.add(t);
-            }
+      SortedSet<T> set = sortedSet(coll, comp);
+      if (set != null) {
+         SortedSet<T> tail = set.tailSet(key);
+         if (tail.isEmpty()) {
+            throw new NoSuchElementException();
          }
-      
-         if (newColl.size() == 0) {
+         return tail.first();
+      }
+      SortedList<T> list = sortedList(coll, comp);
+      if (list != null) {
+         int i = list.lowerBound(key);
+         if (i == list.size()) {
             throw new NoSuchElementException();
          }
-      
-         return min(newColl, comp);
+         return list.get(i);
       }
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.ceiling(key);
+      }
+      boolean found = false;
+      T ceiling = null;
+      for (T t : coll) {
+         if (comp.compare(t, key) >= 0 && (!found || comp.compare(t, ceiling) < 0)) {
+            ceiling = t;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new NoSuchElementException();
+      }
+      return ceiling;
    }
 
 
@@ -283,7 +577,9 @@ public final class Selector {
     * does not have to be in coll. If coll or comp is null, this method throws
     * an IllegalArgumentException. If coll is empty or if there is no
     * qualifying value, this method throws a NoSuchElementException. This
-    * method will not change coll in any way.
+    * method will not change coll in any way. If coll is a NavigableSet
+    * ordered by comp, or a List marked sorted by asSorted, this takes
+    * O(log n); otherwise coll is scanned once.
     *
     * @param <T>     type variable
     * @param coll    the Collection from which the floor value is selected
@@ -297,22 +593,1198 @@ public final class Selector {
       if (coll == null || comp == null) {
          throw new IllegalArgumentException();
       }
-      else if (coll.size() == 0) {
+      else if (coll.isEmpty()) {
          throw new NoSuchElementException();
       }
-      else {
-         Collection<T> newColl = new ArrayList<T>();
-         for (T t : coll) {
-            if (comp.compare(t, key) <= 0) {
-               newColl.add(t);
-            }
+      NavigableSet<T> set = navigableSet(coll, comp);
+      if (set != null) {
+         T floor = set.floor(key);
+         if (floor == null) {
+            throw new NoSuchElementException();
          }
-      
-         if (coll.size() == 0) {
+         return floor;
+      }
+      SortedList<T> list = sortedList(coll, comp);
+      if (list != null) {
+         int i = list.upperBound(key);
+         if (i == 0) {
             throw new NoSuchElementException();
          }
-      
-         return max(newColl, comp);
+         return list.get(list.lowerBound(list.get(i - 1)));
+      }
+      OrderStatisticTree<T> tree = tree(coll, comp);
+      if (tree != null) {
+         return tree.floor(key);
+      }
+      boolean found = false;
+      T floor = null;
+      for (T t : coll) {
+         if (comp.compare(t, key) <= 0 && (!found || comp.compare(t, floor) > 0)) {
+            floor = t;
+            found = true;
+         }
+      }
+      if (!found) {
+         throw new NoSuchElementException();
+      }
+      return floor;
+   }
+
+
+   /**
+    * Returns the minimum value in the Collection coll as defined by the
+    * Comparator comp, as min does, but as a parallel reduction over coll's
+    * Spliterator when coll holds at least PARALLEL_THRESHOLD values. Among
+    * equal minimums the first in iteration order is returned. Sorted inputs
+    * recognized by min are answered by min without a scan. If either coll
+    * or comp is null, this method throws an IllegalArgumentException. If
+    * coll is empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the minimum is selected
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the minimum value in coll
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T parallelMin(Collection<T> coll, Comparator<T> comp) {
+      return parallelMin(coll, comp, PARALLEL_THRESHOLD);
+   }
+
+
+   /**
+    * Returns the minimum value in the Collection coll as defined by the
+    * Comparator comp, running in parallel only if coll holds at least
+    * threshold values. See parallelMin(Collection, Comparator). If threshold
+    * is less than 1, this method throws an IllegalArgumentException.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection from which the minimum is selected
+    * @param comp       the Comparator that defines the total order on T
+    * @param threshold  the smallest size worth running in parallel
+    * @return           the minimum value in coll
+    * @throw           IllegalArgumentException as per above
+    * @throw           NoSuchElementException as per above
+    */
+   public static <T> T parallelMin(Collection<T> coll, Comparator<T> comp, int threshold) {
+      if (!parallel(coll, comp, threshold)) {
+         return min(coll, comp);
+      }
+      return coll.parallelStream().reduce((x, y) -> comp.compare(y, x) < 0 ? y : x).get();
+   }
+
+
+   /**
+    * Returns the maximum value in the Collection coll as defined by the
+    * Comparator comp, as max does, but as a parallel reduction over coll's
+    * Spliterator when coll holds at least PARALLEL_THRESHOLD values. Among
+    * equal maximums the first in iteration order is returned. If either
+    * coll or comp is null, this method throws an IllegalArgumentException.
+    * If coll is empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the maximum is selected
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the maximum value in coll
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T parallelMax(Collection<T> coll, Comparator<T> comp) {
+      return parallelMax(coll, comp, PARALLEL_THRESHOLD);
+   }
+
+
+   /**
+    * Returns the maximum value in the Collection coll as defined by the
+    * Comparator comp, running in parallel only if coll holds at least
+    * threshold values. See parallelMax(Collection, Comparator). If threshold
+    * is less than 1, this method throws an IllegalArgumentException.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection from which the maximum is selected
+    * @param comp       the Comparator that defines the total order on T
+    * @param threshold  the smallest size worth running in parallel
+    * @return           the maximum value in coll
+    * @throw           IllegalArgumentException as per above
+    * @throw           NoSuchElementException as per above
+    */
+   public static <T> T parallelMax(Collection<T> coll, Comparator<T> comp, int threshold) {
+      if (!parallel(coll, comp, threshold)) {
+         return max(coll, comp);
+      }
+      return coll.parallelStream().reduce((x, y) -> comp.compare(y, x) > 0 ? y : x).get();
+   }
+
+
+   /**
+    * Returns the values in the Collection coll between low and high, as
+    * range does, but filtered in parallel over coll's Spliterator when coll
+    * holds at least PARALLEL_THRESHOLD values. The pieces are concatenated
+    * in order, so the result keeps coll's iteration order. If either coll
+    * or comp is null, this method throws an IllegalArgumentException. If
+    * coll is empty or no values are in range, this method throws a
+    * NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the range values are selected
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @param comp    the Comparator that defines the total order on T
+    * @return        a Collection of values between low and high
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> Collection<T> parallelRange(Collection<T> coll, T low, T high,
+                                                 Comparator<T> comp) {
+      return parallelRange(coll, low, high, comp, PARALLEL_THRESHOLD);
+   }
+
+
+   /**
+    * Returns the values in the Collection coll between low and high,
+    * running in parallel only if coll holds at least threshold values. See
+    * parallelRange(Collection, Object, Object, Comparator). If threshold is
+    * less than 1, this method throws an IllegalArgumentException.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection from which the range values are selected
+    * @param low        the lower bound of the range
+    * @param high       the upper bound of the range
+    * @param comp       the Comparator that defines the total order on T
+    * @param threshold  the smallest size worth running in parallel
+    * @return           a Collection of values between low and high
+    * @throw           IllegalArgumentException as per above
+    * @throw           NoSuchElementException as per above
+    */
+   public static <T> Collection<T> parallelRange(Collection<T> coll, T low, T high,
+                                                 Comparator<T> comp, int threshold) {
+      if (!parallel(coll, comp, threshold) || comp.compare(low, high) > 0) {
+         return range(coll, low, high, comp);
+      }
+      Collection<T> newColl = coll.parallelStream()
+         .filter(t -> comp.compare(t, low) >= 0 && comp.compare(t, high) <= 0)
+         .collect(Collectors.toCollection(ArrayList::new));
+      if (newColl.isEmpty()) {
+         throw new NoSuchElementException();
+      }
+      return newColl;
+   }
+
+
+   /**
+    * Selects the kth minimum value from the Collection coll as defined by the
+    * Comparator comp, as kmin does, but in parallel when coll holds at least
+    * PARALLEL_THRESHOLD values. A sample of coll is sorted to pick pivots,
+    * every value is placed between two pivots in parallel, and only the
+    * buckets that can hold the answer are then sorted, also in parallel.
+    * If either coll or comp is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * minimum value, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth minimum is selected
+    * @param k       the k-selection value
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the kth minimum value in coll
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T parallelKmin(Collection<T> coll, int k, Comparator<T> comp) {
+      return parallelKmin(coll, k, comp, PARALLEL_THRESHOLD);
+   }
+
+
+   /**
+    * Selects the kth minimum value from the Collection coll, running in
+    * parallel only if coll holds at least threshold values. See
+    * parallelKmin(Collection, int, Comparator). If threshold is less than 1,
+    * this method throws an IllegalArgumentException.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection from which the kth minimum is selected
+    * @param k          the k-selection value
+    * @param comp       the Comparator that defines the total order on T
+    * @param threshold  the smallest size worth running in parallel
+    * @return           the kth minimum value in coll
+    * @throw           IllegalArgumentException as per above
+    * @throw           NoSuchElementException as per above
+    */
+   public static <T> T parallelKmin(Collection<T> coll, int k, Comparator<T> comp,
+                                    int threshold) {
+      if (!parallel(coll, comp, threshold) || k < 1 || k > coll.size()) {
+         return kmin(coll, k, comp);
+      }
+      Object[] values = coll.toArray();
+      return parallelFirstEqual(values, parallelKth(values, k, comp), comp);
+   }
+
+
+   /**
+    * Selects the kth maximum value from the Collection coll as defined by the
+    * Comparator comp, as kmax does, but in parallel when coll holds at least
+    * PARALLEL_THRESHOLD values. See parallelKmin(Collection, int,
+    * Comparator). If either coll or comp is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * maximum value, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth maximum is selected
+    * @param k       the k-selection value
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the kth maximum value in coll
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T parallelKmax(Collection<T> coll, int k, Comparator<T> comp) {
+      return parallelKmax(coll, k, comp, PARALLEL_THRESHOLD);
+   }
+
+
+   /**
+    * Selects the kth maximum value from the Collection coll, running in
+    * parallel only if coll holds at least threshold values. See
+    * parallelKmax(Collection, int, Comparator). If threshold is less than 1,
+    * this method throws an IllegalArgumentException.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection from which the kth maximum is selected
+    * @param k          the k-selection value
+    * @param comp       the Comparator that defines the total order on T
+    * @param threshold  the smallest size worth running in parallel
+    * @return           the kth maximum value in coll
+    * @throw           IllegalArgumentException as per above
+    * @throw           NoSuchElementException as per above
+    */
+   public static <T> T parallelKmax(Collection<T> coll, int k, Comparator<T> comp,
+                                    int threshold) {
+      if (!parallel(coll, comp, threshold) || k < 1 || k > coll.size()) {
+         return kmax(coll, k, comp);
+      }
+      Object[] values = coll.toArray();
+      return parallelFirstEqual(values,
+         parallelKth(values, k, Collections.reverseOrder(comp)), comp);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the smallest int key, as
+    * extracted by key. Keys are extracted once into a primitive array, so
+    * no Comparator is called. Among values with equal keys the first in
+    * iteration order is returned. If either coll or key is null, this
+    * method throws an IllegalArgumentException. If coll is empty, this
+    * method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the minimum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the smallest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T minByInt(Collection<T> coll, ToIntFunction<T> key) {
+      return kminByInt(coll, 1, key);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the largest int key, as
+    * extracted by key, without calling a Comparator. Among values with
+    * equal keys the first in iteration order is returned. If either coll or
+    * key is null, this method throws an IllegalArgumentException. If coll
+    * is empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the maximum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T maxByInt(Collection<T> coll, ToIntFunction<T> key) {
+      return kmaxByInt(coll, 1, key);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth smallest distinct
+    * int key, as extracted by key. Keys are extracted once into a primitive
+    * array and selected on with primitive comparisons, then mapped back to
+    * the first value in iteration order that has the selected key. If
+    * either coll or key is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * minimum key, this method throws a NoSuchElementException. This method
+    * will not change coll in any way.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth minimum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth smallest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T kminByInt(Collection<T> coll, int k, ToIntFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysInt(a, key), k, false);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth largest distinct
+    * int key, as extracted by key, without calling a Comparator. Among
+    * values with equal keys the first in iteration order is returned. If
+    * either coll or key is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * maximum key, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth maximum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T kmaxByInt(Collection<T> coll, int k, ToIntFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysInt(a, key), k, true);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the smallest long key, as
+    * minByInt does for int keys.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the minimum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the smallest key
+    * @throw        IllegalArgumentException if coll or key is null
+    * @throw        NoSuchElementException if coll is empty
+    */
+   public static <T> T minByLong(Collection<T> coll, ToLongFunction<T> key) {
+      return kminByLong(coll, 1, key);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the largest long key, as
+    * extracted by key, without calling a Comparator. Among values with
+    * equal keys the first in iteration order is returned. If either coll or
+    * key is null, this method throws an IllegalArgumentException. If coll
+    * is empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the maximum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T maxByLong(Collection<T> coll, ToLongFunction<T> key) {
+      return kmaxByLong(coll, 1, key);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth smallest distinct
+    * long key, as kminByInt does for int keys.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth minimum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth smallest key
+    * @throw        IllegalArgumentException if coll or key is null
+    * @throw        NoSuchElementException if there is no kth minimum key
+    */
+   public static <T> T kminByLong(Collection<T> coll, int k, ToLongFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysLong(a, key), k, false);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth largest distinct
+    * long key, as extracted by key, without calling a Comparator. Among
+    * values with equal keys the first in iteration order is returned. If
+    * either coll or key is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * maximum key, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth maximum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T kmaxByLong(Collection<T> coll, int k, ToLongFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysLong(a, key), k, true);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the smallest double key, as
+    * minByInt does for int keys. Keys are ordered as by Double.compare, so
+    * -0.0 is below 0.0 and NaN is above every other key.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the minimum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the smallest key
+    * @throw        IllegalArgumentException if coll or key is null
+    * @throw        NoSuchElementException if coll is empty
+    */
+   public static <T> T minByDouble(Collection<T> coll, ToDoubleFunction<T> key) {
+      return kminByDouble(coll, 1, key);
+   }
+
+
+   /**
+    * Returns the value in the Collection coll with the largest double key, as
+    * extracted by key, without calling a Comparator. Among values with
+    * equal keys the first in iteration order is returned. If either coll or
+    * key is null, this method throws an IllegalArgumentException. If coll
+    * is empty, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the maximum is selected
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T maxByDouble(Collection<T> coll, ToDoubleFunction<T> key) {
+      return kmaxByDouble(coll, 1, key);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth smallest distinct
+    * double key, as kminByInt does for int keys. Keys are ordered as by Double.compare, so
+    * -0.0 is below 0.0 and NaN is above every other key.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth minimum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth smallest key
+    * @throw        IllegalArgumentException if coll or key is null
+    * @throw        NoSuchElementException if there is no kth minimum key
+    */
+   public static <T> T kminByDouble(Collection<T> coll, int k, ToDoubleFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysDouble(a, key), k, false);
+   }
+
+
+   /**
+    * Selects the value in the Collection coll with the kth largest distinct
+    * double key, as extracted by key, without calling a Comparator. Among
+    * values with equal keys the first in iteration order is returned. If
+    * either coll or key is null, this method throws an
+    * IllegalArgumentException. If coll is empty or if there is no kth
+    * maximum key, this method throws a NoSuchElementException.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection from which the kth maximum is selected
+    * @param k       the k-selection value
+    * @param key     the function that extracts the key of each value
+    * @return        the value in coll with the kth largest key
+    * @throw        IllegalArgumentException as per above
+    * @throw        NoSuchElementException as per above
+    */
+   public static <T> T kmaxByDouble(Collection<T> coll, int k, ToDoubleFunction<T> key) {
+      Object[] a = snapshot(coll, k, key);
+      return selectByKey(a, keysDouble(a, key), k, true);
+   }
+
+
+   /**
+    * Marks list as sorted in ascending order by comp and returns a
+    * read-only view of it that min, max, range, ceiling and floor answer by
+    * binary search when given the same comp, instead of scanning. The
+    * caller is responsible for list actually being sorted; answers on an
+    * unsorted list are undefined. Binary search is only fast on a list
+    * that implements RandomAccess.
+    *
+    * @param <T>     type variable
+    * @param list    a List sorted by comp
+    * @param comp    the Comparator list is sorted by
+    * @return        a read-only sorted view of list
+    * @throw        IllegalArgumentException if list or comp is null
+    */
+   public static <T> List<T> asSorted(List<T> list, Comparator<T> comp) {
+      if (list == null || comp == null) {
+         throw new IllegalArgumentException();
+      }
+      return new SortedList<T>(list, comp);
+   }
+
+
+   /** Segments no longer than this are finished by insertion sort. */
+   private static final int INSERTION_THRESHOLD = 16;
+
+
+   /**
+    * Returns the first value of coll, in iteration order, that comp
+    * considers equal to value. kmin and kmax return this element so that,
+    * among values that compare equal, the one seen first is the answer.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to search
+    * @param value   a value equal to some element of coll
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the first element of coll equal to value
+    */
+   private static <T> T firstEqual(Collection<T> coll, T value, Comparator<T> comp) {
+      for (T t : coll) {
+         if (comp.compare(t, value) == 0) {
+            return t;
+         }
+      }
+      return value;
+   }
+
+
+   /**
+    * Returns the kth smallest distinct value of a as defined by comp,
+    * reordering a in the process. Values are three-way partitioned around
+    * a median-of-three pivot. The distinct values below the pivot have to
+    * be counted, so the less-than side is always resolved first, but the
+    * greater-than side is only entered when the answer lies there. The
+    * cost is linear plus the cost of ordering the values below the
+    * answer. Distinctness from comparisons alone cannot be decided in
+    * linear time in general. Past depth 2 log n a segment is sorted
+    * outright, bounding the worst case at O(n log n).
+    *
+    * @param <T>     type variable
+    * @param a       snapshot of the values to select from
+    * @param k       the k-selection value
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the kth smallest distinct value
+    * @throw        NoSuchElementException if a has fewer than k distinct values
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> T kth(Object[] a, int k, Comparator<T> comp) {
+      int depth = 2 * (32 - Integer.numberOfLeadingZeros(a.length));
+      int r = distinctSelect(a, 0, a.length - 1, k, (Comparator<Object>) comp, depth);
+      if (r < 0) {
+         throw new NoSuchElementException();
+      }
+      return (T) a[r];
+   }
+
+
+   /**
+    * Finds the kth smallest distinct value in a[lo..hi]. Returns its index
+    * if the segment holds at least k distinct values, and otherwise the
+    * bitwise complement of the number of distinct values it holds.
+    *
+    * @param a       values to select from
+    * @param lo      first index of the segment
+    * @param hi      last index of the segment
+    * @param k       the k-selection value
+    * @param comp    the Comparator that defines the total order
+    * @param depth   partition steps left before sorting outright
+    * @return        the index of the answer, or ~(distinct values)
+    */
+   private static int distinctSelect(Object[] a, int lo, int hi, int k,
+                                     Comparator<Object> comp, int depth) {
+      int seen = 0;
+      while (lo <= hi) {
+         if (hi - lo <= INSERTION_THRESHOLD || depth == 0) {
+            Arrays.sort(a, lo, hi + 1, comp);
+            for (int i = lo; i <= hi; i++) {
+               if (i == lo || comp.compare(a[i - 1], a[i]) != 0) {
+                  if (++seen == k) {
+                     return i;
+                  }
+               }
+            }
+            return ~seen;
+         }
+         depth--;
+         Object p = median(a[lo], a[(lo + hi) >>> 1], a[hi], comp);
+         int lt = lo;
+         int i = lo;
+         int gt = hi;
+         while (i <= gt) {
+            Object v = a[i];
+            int c = comp.compare(v, p);
+            if (c < 0) {
+               a[i++] = a[lt];
+               a[lt++] = v;
+            }
+            else if (c > 0) {
+               a[i] = a[gt];
+               a[gt--] = v;
+            }
+            else {
+               i++;
+            }
+         }
+         int r = distinctSelect(a, lo, lt - 1, k - seen, comp, depth);
+         if (r >= 0) {
+            return r;
+         }
+         seen += ~r;
+         if (++seen == k) {
+            return lt;
+         }
+         lo = gt + 1;
+      }
+      return ~seen;
+   }
+
+
+   /**
+    * Checks the arguments of the key-extracting methods and returns a
+    * snapshot of coll.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to select from
+    * @param k       the k-selection value
+    * @param key     the key-extracting function
+    * @return        coll's values in iteration order
+    * @throw        IllegalArgumentException if coll or key is null
+    * @throw        NoSuchElementException if coll is empty or k is out of range
+    */
+   private static <T> Object[] snapshot(Collection<T> coll, int k, Object key) {
+      if (coll == null || key == null) {
+         throw new IllegalArgumentException();
+      }
+      if (coll.isEmpty() || k < 1 || k > coll.size()) {
+         throw new NoSuchElementException();
+      }
+      return coll.toArray();
+   }
+
+
+   /**
+    * Extracts the int key of every value of a, widened to long.
+    *
+    * @param <T>     type variable
+    * @param a       the values
+    * @param key     the key-extracting function
+    * @return        the keys, in the same order as a
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> long[] keysInt(Object[] a, ToIntFunction<T> key) {
+      long[] keys = new long[a.length];
+      for (int i = 0; i < a.length; i++) {
+         keys[i] = key.applyAsInt((T) a[i]);
+      }
+      return keys;
+   }
+
+
+   /**
+    * Extracts the long key of every value of a.
+    *
+    * @param <T>     type variable
+    * @param a       the values
+    * @param key     the key-extracting function
+    * @return        the keys, in the same order as a
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> long[] keysLong(Object[] a, ToLongFunction<T> key) {
+      long[] keys = new long[a.length];
+      for (int i = 0; i < a.length; i++) {
+         keys[i] = key.applyAsLong((T) a[i]);
+      }
+      return keys;
+   }
+
+
+   /**
+    * Extracts the double key of every value of a as a long that orders
+    * the same way under signed comparison as the doubles do under
+    * Double.compare. Positive doubles keep their bits; negative doubles
+    * have all but the sign bit flipped, which reverses their order.
+    *
+    * @param <T>     type variable
+    * @param a       the values
+    * @param key     the key-extracting function
+    * @return        the keys, in the same order as a
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> long[] keysDouble(Object[] a, ToDoubleFunction<T> key) {
+      long[] keys = new long[a.length];
+      for (int i = 0; i < a.length; i++) {
+         long bits = Double.doubleToLongBits(key.applyAsDouble((T) a[i]));
+         keys[i] = bits ^ ((bits >> 63) & Long.MAX_VALUE);
+      }
+      return keys;
+   }
+
+
+   /**
+    * Returns the value of a whose key is the kth smallest, or kth largest,
+    * distinct key. k = 1 is a single scan; otherwise a copy of the keys is
+    * partitioned by distinctSelect. Bitwise complement reverses the signed
+    * order of longs without overflow, so the largest keys are selected as
+    * the smallest complemented ones. The answer is the first value of a
+    * with the selected key.
+    *
+    * @param <T>      type variable
+    * @param a        the values
+    * @param keys     the key of each value of a
+    * @param k        the k-selection value
+    * @param largest  whether to select the kth largest key
+    * @return         the first value of a with the selected key
+    * @throw         NoSuchElementException if there are fewer than k distinct keys
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> T selectByKey(Object[] a, long[] keys, int k, boolean largest) {
+      if (largest) {
+         for (int i = 0; i < keys.length; i++) {
+            keys[i] = ~keys[i];
+         }
+      }
+      long kth = keys[0];
+      if (k == 1) {
+         for (long key : keys) {
+            if (key < kth) {
+               kth = key;
+            }
+         }
+      }
+      else {
+         long[] b = keys.clone();
+         int depth = 2 * (32 - Integer.numberOfLeadingZeros(b.length));
+         int r = distinctSelect(b, 0, b.length - 1, k, depth);
+         if (r < 0) {
+            throw new NoSuchElementException();
+         }
+         kth = b[r];
+      }
+      int i = 0;
+      while (keys[i] != kth) {
+         i++;
+      }
+      return (T) a[i];
+   }
+
+
+   /**
+    * Finds the kth smallest distinct value in a[lo..hi], as the Object
+    * version of distinctSelect does, with primitive comparisons.
+    *
+    * @param a       values to select from
+    * @param lo      first index of the segment
+    * @param hi      last index of the segment
+    * @param k       the k-selection value
+    * @param depth   partition steps left before sorting outright
+    * @return        the index of the answer, or ~(distinct values)
+    */
+   private static int distinctSelect(long[] a, int lo, int hi, int k, int depth) {
+      int seen = 0;
+      while (lo <= hi) {
+         if (hi - lo <= INSERTION_THRESHOLD || depth == 0) {
+            Arrays.sort(a, lo, hi + 1);
+            for (int i = lo; i <= hi; i++) {
+               if (i == lo || a[i - 1] != a[i]) {
+                  if (++seen == k) {
+                     return i;
+                  }
+               }
+            }
+            return ~seen;
+         }
+         depth--;
+         long x = a[lo];
+         long y = a[(lo + hi) >>> 1];
+         long z = a[hi];
+         long p = Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+         int lt = lo;
+         int i = lo;
+         int gt = hi;
+         while (i <= gt) {
+            long v = a[i];
+            if (v < p) {
+               a[i++] = a[lt];
+               a[lt++] = v;
+            }
+            else if (v > p) {
+               a[i] = a[gt];
+               a[gt--] = v;
+            }
+            else {
+               i++;
+            }
+         }
+         int r = distinctSelect(a, lo, lt - 1, k - seen, depth);
+         if (r >= 0) {
+            return r;
+         }
+         seen += ~r;
+         if (++seen == k) {
+            return lt;
+         }
+         lo = gt + 1;
+      }
+      return ~seen;
+   }
+
+
+   /**
+    * Returns the median of three values as defined by comp.
+    *
+    * @param x       first value
+    * @param y       second value
+    * @param z       third value
+    * @param comp    the Comparator that defines the total order
+    * @return        the median
+    */
+   private static Object median(Object x, Object y, Object z, Comparator<Object> comp) {
+      if (comp.compare(x, y) > 0) {
+         Object t = x;
+         x = y;
+         y = t;
+      }
+      if (comp.compare(y, z) <= 0) {
+         return y;
+      }
+      return comp.compare(x, z) > 0 ? x : z;
+   }
+
+
+   /** Collections smaller than this are not worth running in parallel. */
+   public static final int PARALLEL_THRESHOLD = 1 << 13;
+
+   /** Sample values drawn per pivot when picking parallelKth's pivots. */
+   private static final int OVERSAMPLE = 16;
+
+
+   /**
+    * Returns true if the parallel methods should split coll rather than
+    * fall back to their sequential versions: coll holds at least threshold
+    * values and is not a sorted input the sequential versions navigate.
+    *
+    * @param <T>        type variable
+    * @param coll       the Collection to check
+    * @param comp       the Comparator the caller orders by
+    * @param threshold  the smallest size worth running in parallel
+    * @return           true if coll should be processed in parallel
+    * @throw           IllegalArgumentException if coll or comp is null, or
+    *                  threshold is less than 1
+    */
+   private static <T> boolean parallel(Collection<T> coll, Comparator<T> comp, int threshold) {
+      if (coll == null || comp == null || threshold < 1) {
+         throw new IllegalArgumentException();
+      }
+      return coll.size() >= threshold && sortedSet(coll, comp) == null
+         && sortedList(coll, comp) == null && tree(coll, comp) == null;
+   }
+
+
+   /**
+    * Returns the first value of a that comp considers equal to value,
+    * searching a in parallel. a is a snapshot of a Collection in iteration
+    * order, and an array stream is ordered, so findFirst picks the same
+    * value the sequential methods do even when the Collection's own stream
+    * is unordered, as a HashSet's is.
+    *
+    * @param <T>     type variable
+    * @param a       snapshot of the values to search
+    * @param value   a value equal to some element of a
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the first element of a equal to value
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> T parallelFirstEqual(Object[] a, T value, Comparator<T> comp) {
+      return Arrays.stream(a).parallel().map(t -> (T) t)
+         .filter(t -> comp.compare(t, value) == 0).findFirst().orElse(value);
+   }
+
+
+   /**
+    * Returns the kth smallest distinct value of a as defined by comp, by
+    * one pass of parallel sample sort. Distinct pivots are taken from a
+    * sorted, evenly spaced sample, and each value goes to bucket 2j + 1 if
+    * it equals pivot j, or to bucket 2j if it falls just below it. Buckets
+    * hold disjoint values, so their distinct counts add up. An equal bucket
+    * holds one distinct value, and any nonempty bucket holds at least one,
+    * so buckets past the first point where k nonempty buckets have been seen
+    * cannot hold the answer and are never sorted. The rest are sorted in
+    * parallel and walked in order.
+    *
+    * @param <T>     type variable
+    * @param a       snapshot of the values to select from
+    * @param k       the k-selection value
+    * @param comp    the Comparator that defines the total order on T
+    * @return        the kth smallest distinct value
+    * @throw        NoSuchElementException if a has fewer than k distinct values
+    */
+   @SuppressWarnings("unchecked")
+   private static <T> T parallelKth(Object[] a, int k, Comparator<T> comp) {
+      Comparator<Object> c = (Comparator<Object>) comp;
+      int n = a.length;
+      int pivots = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 4) - 1;
+      int samples = Math.min(n, (pivots + 1) * OVERSAMPLE);
+      Object[] sample = new Object[samples];
+      for (int i = 0; i < samples; i++) {
+         sample[i] = a[(int) ((long) i * n / samples)];
+      }
+      Arrays.sort(sample, c);
+      Object[] split = new Object[pivots];
+      int m = 0;
+      for (int i = 1; i <= pivots; i++) {
+         Object p = sample[i * samples / (pivots + 1)];
+         if (m == 0 || c.compare(split[m - 1], p) < 0) {
+            split[m++] = p;
+         }
+      }
+      Object[] splitters = Arrays.copyOf(split, m);
+   
+      int[] bucket = new int[n];
+      IntStream.range(0, n).parallel().forEach(i -> {
+         int j = Arrays.binarySearch(splitters, a[i], c);
+         bucket[i] = j >= 0 ? 2 * j + 1 : 2 * ~j;
+      });
+      int[] start = new int[2 * m + 2];
+      for (int b : bucket) {
+         start[b + 1]++;
+      }
+      int last = 0;
+      int nonEmpty = 0;
+      for (int b = 0; b <= 2 * m; b++) {
+         if (start[b + 1] > 0 && nonEmpty < k) {
+            nonEmpty++;
+            last = b;
+         }
+         start[b + 1] += start[b];
+      }
+      Object[] sorted = new Object[start[last + 1]];
+      int[] next = Arrays.copyOf(start, last + 1);
+      for (int i = 0; i < n; i++) {
+         if (bucket[i] <= last) {
+            sorted[next[bucket[i]]++] = a[i];
+         }
+      }
+      IntStream.rangeClosed(0, last).parallel().filter(b -> (b & 1) == 0)
+         .forEach(b -> Arrays.sort(sorted, start[b], start[b + 1], c));
+   
+      int seen = 0;
+      for (int i = 0; i < sorted.length; i++) {
+         if (i == 0 || c.compare(sorted[i - 1], sorted[i]) != 0) {
+            if (++seen == k) {
+               return (T) sorted[i];
+            }
+         }
+      }
+      throw new NoSuchElementException();
+   }
+
+
+   /**
+    * Returns coll as a SortedSet if it is one ordered by comp, or null.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to check
+    * @param comp    the Comparator the caller orders by
+    * @return        coll as a SortedSet, or null
+    */
+   private static <T> SortedSet<T> sortedSet(Collection<T> coll, Comparator<T> comp) {
+      if (coll instanceof SortedSet && sameOrder(((SortedSet<T>) coll).comparator(), comp)) {
+         return (SortedSet<T>) coll;
+      }
+      return null;
+   }
+
+
+   /**
+    * Returns coll as a NavigableSet if it is one ordered by comp, or null.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to check
+    * @param comp    the Comparator the caller orders by
+    * @return        coll as a NavigableSet, or null
+    */
+   private static <T> NavigableSet<T> navigableSet(Collection<T> coll, Comparator<T> comp) {
+      if (coll instanceof NavigableSet && sameOrder(((NavigableSet<T>) coll).comparator(), comp)) {
+         return (NavigableSet<T>) coll;
+      }
+      return null;
+   }
+
+
+   /**
+    * Returns coll as a SortedList if it was marked sorted by comp, or null.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to check
+    * @param comp    the Comparator the caller orders by
+    * @return        coll as a SortedList, or null
+    */
+   private static <T> SortedList<T> sortedList(Collection<T> coll, Comparator<T> comp) {
+      if (coll instanceof SortedList && ((SortedList<T>) coll).comp.equals(comp)) {
+         return (SortedList<T>) coll;
+      }
+      return null;
+   }
+
+
+   /**
+    * Returns a read-only view of the values of coll between low and high,
+    * inclusive, if coll is sorted by comp, or null if it has to be scanned.
+    * low must not be greater than high.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to view
+    * @param low     the lower bound of the range
+    * @param high    the upper bound of the range
+    * @param comp    the Comparator that defines the total order on T
+    * @return        a view of the range, or null
+    */
+   private static <T> Collection<T> rangeView(Collection<T> coll, T low, T high,
+                                              Comparator<T> comp) {
+      NavigableSet<T> set = navigableSet(coll, comp);
+      if (set != null) {
+         return Collections.unmodifiableCollection(set.subSet(low, true, high, true));
+      }
+      SortedList<T> list = sortedList(coll, comp);
+      if (list != null) {
+         return list.subList(list.lowerBound(low), list.upperBound(high));
+      }
+      return null;
+   }
+
+
+   /**
+    * Returns coll as an OrderStatisticTree if it is one ordered by comp, or
+    * null.
+    *
+    * @param <T>     type variable
+    * @param coll    the Collection to check
+    * @param comp    the Comparator the caller orders by
+    * @return        coll as an OrderStatisticTree, or null
+    */
+   private static <T> OrderStatisticTree<T> tree(Collection<T> coll, Comparator<T> comp) {
+      if (coll instanceof OrderStatisticTree
+            && ((OrderStatisticTree<T>) coll).comparator().equals(comp)) {
+         return (OrderStatisticTree<T>) coll;
+      }
+      return null;
+   }
+
+
+   /**
+    * Returns true if a sorted collection's comparator, null meaning natural
+    * order, defines the same order as comp.
+    *
+    * @param set     the collection's comparator, or null
+    * @param comp    the Comparator the caller orders by
+    * @return        true if the orders are known to be the same
+    */
+   private static boolean sameOrder(Comparator<?> set, Comparator<?> comp) {
+      if (set == null) {
+         return Comparator.naturalOrder().equals(comp);
+      }
+      return set.equals(comp);
+   }
+
+
+   /**
+    * A read-only view of a List known to be sorted by comp. See asSorted.
+    */
+   private static final class SortedList<T> extends AbstractList<T> implements RandomAccess {
+      private final List<T> list;
+      private final Comparator<T> comp;
+
+      SortedList(List<T> list, Comparator<T> comp) {
+         this.list = list;
+         this.comp = comp;
+      }
+
+      @Override
+      public T get(int index) {
+         return list.get(index);
+      }
+
+      @Override
+      public int size() {
+         return list.size();
+      }
+
+      /** Returns the index of the first element not less than key. */
+      int lowerBound(T key) {
+         int lo = 0;
+         int hi = list.size();
+         while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comp.compare(list.get(mid), key) < 0) {
+               lo = mid + 1;
+            }
+            else {
+               hi = mid;
+            }
+         }
+         return lo;
+      }
+
+      /** Returns the index of the first element greater than key. */
+      int upperBound(T key) {
+         int lo = 0;
+         int hi = list.size();
+         while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (comp.compare(list.get(mid), key) <= 0) {
+               lo = mid + 1;
+            }
+            else {
+               hi = mid;
+            }
+         }
+         return lo;
+      }
+   }
+
+
+   /**
+    * Filters an Iterator down to the values between low and high, looking
+    * one value ahead.
+    */
+   private static final class RangeIterator<T> implements Iterator<T> {
+      private final Iterator<T> src;
+      private final T low;
+      private final T high;
+      private final Comparator<T> comp;
+      private T next;
+      private boolean ready;
+
+      RangeIterator(Iterator<T> src, T low, T high, Comparator<T> comp) {
+         this.src = src;
+         this.low = low;
+         this.high = high;
+         this.comp = comp;
+      }
+
+      @Override
+      public boolean hasNext() {
+         while (!ready && src.hasNext()) {
+            T t = src.next();
+            if (comp.compare(t, low) >= 0 && comp.compare(t, high) <= 0) {
+               next = t;
+               ready = true;
+            }
+         }
+         return ready;
+      }
+
+      @Override
+      public T next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         T t = next;
+         next = null;
+         ready = false;
+         return t;
       }
    }
 
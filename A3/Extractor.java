@@ -1,10 +1,17 @@
-import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Scanner;
+import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Extractor.java. Implements feature extraction for collinear points in
@@ -17,31 +24,38 @@ import java.util.TreeSet;
  */
 public class Extractor {
    
-   /** raw data: all (x,y) points from source data. */
+   /** raw data: all (x,y) points from source data, built when needed. */
    private Point[] points;
    
+   /** the same points as parallel coordinate arrays, built when needed. */
+   private PointSet set;
+   
    /** lines identified from raw data. */
    private SortedSet<Line> lines;
+   
+   /** fewest anchors a task of getLinesParallel is split down to. */
+   private static final int MIN_ANCHORS_PER_TASK = 16;
   
    /**
     * Builds an extractor based on the points in the file named by filename.
+    * The file may be a text file of the number of points followed by that
+    * many x y pairs, or a binary point file as described in PointLoader.
+    * It is memory mapped and loaded straight into coordinate arrays; Points
+    * are only created if getLinesBrute needs them.
     * @param filename name of file
     * @throws FileNotFoundException throw if file not found 
     */
    public Extractor(String filename) throws FileNotFoundException {
-      File file = new File(filename);
-      Scanner sc = new Scanner(file);
-      int number = sc.nextInt();
-      points = new Point[number];
-      int count = 0;
-      
-      while (count < number || sc.hasNext()) {
-         int x = sc.nextInt();
-         int y = sc.nextInt();
-         points[count] = new Point(x, y);
-         count++;
-      }
-      
+      Path file = Paths.get(filename);
+      if (!Files.isRegularFile(file)) {
+         throw new FileNotFoundException(filename);
+      }
+      try {
+         set = PointLoader.load(file);
+      }
+      catch (IOException e) {
+         throw new UncheckedIOException(e);
+      }
    }
   
    /**
@@ -62,6 +76,7 @@ public class Extractor {
     */
    public SortedSet<Line> getLinesBrute() {
       lines = new TreeSet<Line>();
+      Point[] points = points();
       if (points.length >= 4) {
          for (int a = 0; a < points.length; a++) {
             for (int b = 1; b < points.length; b++) {
@@ -86,34 +101,267 @@ public class Extractor {
    /**
     * Returns a sorted set of all line segments of at least four collinear
     * points. The line segments are maximal; that is, no sub-segments are
-    * identified separately. A sort-and-scan strategy is used. Returns an empty
-    * set if there are no qualifying line segments.
+    * identified separately. The segments are found by getSegments, and a
+    * Line is built once for each. Returns an empty set if there are no
+    * qualifying line segments.
     * @return return set of lines
     */
    public SortedSet<Line> getLinesFast() {
-      lines = new TreeSet<Line>();
-      Point[] points2 = Arrays.copyOf(points, points.length);
-      for (Point p : points) {
-         Arrays.sort(points2, p.slopeOrder);
-      
-         for (int i = 0; i < points2.length; i++) {
-            for (int j = points2.length - 1; j > i; j--) {
-               if (p.slopeOrder.compare(points2[i], points2[j]) == 0) {
-                  if (j - i > 1) {
-                     Line line = new Line();
-                     line.add(p);
-                     for (int a = i; a <= j; a++) {
-                        line.add(points2[a]);
-                     }
-                     lines.add(line);
-                     i = j;
-                  }
+      lines = toLines(getSegments());
+      return lines;
+   }
+
+   /**
+    * Returns the same set of lines as getLinesFast, with the segments found
+    * by getSegmentsParallel.
+    * @return return set of lines
+    */
+   public SortedSet<Line> getLinesParallel() {
+      lines = toLines(getSegmentsParallel());
+      return lines;
+   }
+
+   /**
+    * Returns a sorted set of approximate line segments of at least
+    * minSupport points, where each point lies within tolerance of a line
+    * fitted through the segment, for measured data whose collinear points
+    * are not exactly collinear. Candidate lines are found by a Hough
+    * transform and refined exactly, as described in HoughTransform. If
+    * tolerance is not positive or minSupport is less than 2, throw an
+    * IllegalArgumentException.
+    * @param tolerance largest distance of a point from its line
+    * @param minSupport fewest points on a line
+    * @return return set of lines
+    */
+   public SortedSet<Line> getLinesApproximate(double tolerance, int minSupport) {
+      lines = new HoughTransform(pointSet(), tolerance, minSupport).lines();
+      return lines;
+   }
+
+   /**
+    * Returns a sorted set of all maximal segments of at least four collinear
+    * points, as compact Segments rather than Lines. For each anchor point
+    * the other points are grouped by their exact slope key in a hash map, so
+    * collinearity is decided without floating point and without sorting.
+    * Slope keys are computed from primitive coordinate arrays, no Point is
+    * created, and each segment is only built from its minimum point.
+    * Returns an empty set if there are no qualifying segments.
+    * @return return set of segments
+    */
+   public SortedSet<Segment> getSegments() {
+      PointSet set = pointSet();
+      SortedSet<Segment> segments = new TreeSet<Segment>();
+      Scratch scratch = new Scratch(set.size());
+      for (int a = 0; a < set.size(); a++) {
+         collinear(a, scratch, segments);
+      }
+      return segments;
+   }
+
+   /**
+    * Returns the same set of segments as getSegments, computed with the
+    * anchor points split across the common ForkJoinPool. Each task has its
+    * own scratch arrays and collects its segments in a local list; the lists
+    * are concatenated as tasks join and sorted into the result set once, so
+    * workers share nothing but the read-only points.
+    * @return return set of segments
+    */
+   public SortedSet<Segment> getSegmentsParallel() {
+      int n = pointSet().size();
+      int parts = ForkJoinPool.getCommonPoolParallelism() * 4;
+      int leaf = Math.max(MIN_ANCHORS_PER_TASK, n / parts + 1);
+      return new TreeSet<Segment>(ForkJoinPool.commonPool().invoke(new AnchorTask(0, n, leaf)));
+   }
+
+   /**
+    * Returns a sorted set of the lines of the given segments.
+    * @param segments segments to convert
+    * @return return set of lines
+    */
+   private static SortedSet<Line> toLines(Collection<Segment> segments) {
+      SortedSet<Line> result = new TreeSet<Line>();
+      for (Segment segment : segments) {
+         result.add(segment.toLine());
+      }
+      return result;
+   }
+
+   /**
+    * Returns the points as an array, building it on first use.
+    * @return return the points
+    */
+   private Point[] points() {
+      if (points == null) {
+         points = new Point[set.size()];
+         for (int i = 0; i < points.length; i++) {
+            points[i] = set.point(i);
+         }
+      }
+      return points;
+   }
+
+   /**
+    * Returns the points as a PointSet, building it on first use.
+    * @return return the point set
+    */
+   private PointSet pointSet() {
+      if (set == null) {
+         set = PointSet.of(points);
+      }
+      return set;
+   }
+
+   /**
+    * Adds to out a segment through point a for every slope that at least
+    * three other points make with it, if a is the segment's minimum point.
+    * A segment of m points is thus built once, from its canonical anchor,
+    * rather than once from each of its points. Points are numbered by slope
+    * group, then counting-sorted by group, so each group ends up contiguous.
+    * Points equal to the anchor belong to no group, and if one of them has
+    * a lower index, it is the canonical anchor instead of a. A group with a
+    * point below the anchor is skipped before anything is sorted or
+    * allocated. Otherwise the group's points are sorted by their position
+    * along the segment, which yields its endpoints and its number of
+    * distinct points.
+    * @param a index of the anchor point
+    * @param scratch scratch space for the set's size
+    * @param out collection the segments are added to
+    */
+   private void collinear(int a, Scratch scratch, Collection<Segment> out) {
+      int n = set.size();
+      SlopeMap map = scratch.map;
+      int[] group = scratch.group;
+      int[] end = scratch.end;
+      int[] members = scratch.members;
+      long[] position = scratch.position;
+      map.clear();
+      for (int i = 0; i < n; i++) {
+         long key = set.slopeKey(a, i);
+         if (key == 0 && i < a) {
+            return;
+         }
+         group[i] = key == 0 ? -1 : map.group(key);
+      }
+      int groups = map.size();
+      Arrays.fill(end, 0, groups + 1, 0);
+      for (int i = 0; i < n; i++) {
+         if (group[i] >= 0) {
+            end[group[i] + 1]++;
+         }
+      }
+      for (int g = 0; g < groups; g++) {
+         end[g + 1] += end[g];
+      }
+      for (int i = 0; i < n; i++) {
+         if (group[i] >= 0) {
+            members[end[group[i]]++] = i;
+         }
+      }
+      int from = 0;
+      for (int g = 0; g < groups; g++) {
+         if (end[g] - from >= 3 && isLowest(a, members, from, end[g])) {
+            long key = map.key(g);
+            int count = 0;
+            position[count++] = ((long) set.position(a, key) << 32) | a;
+            for (int i = from; i < end[g]; i++) {
+               position[count++] = ((long) set.position(members[i], key) << 32) | members[i];
+            }
+            Arrays.sort(position, 0, count);
+            int length = 1;
+            for (int i = 1; i < count; i++) {
+               if ((position[i] >>> 32) != (position[i - 1] >>> 32)) {
+                  length++;
                }
             }
+            if (length >= 4) {
+               out.add(new Segment(set, a, key, (int) position[0],
+                                   (int) position[count - 1], length));
+            }
          }
+         from = end[g];
+      }
+   }
+
+   /**
+    * Returns true if no point in members[from, to) is below point a in
+    * natural order.
+    * @param a index of the anchor point
+    * @param members point indices
+    * @param from first index in members
+    * @param to end index in members
+    * @return return if a is the lowest
+    */
+   private boolean isLowest(int a, int[] members, int from, int to) {
+      for (int i = from; i < to; i++) {
+         if (set.compare(members[i], a) < 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Scratch arrays for collinear, sized for a set of n points.
+    */
+   private static final class Scratch {
+   
+      /** slope group numbers from the anchor. */
+      private final SlopeMap map;
+      /** group number of each point. */
+      private final int[] group;
+      /** end offset of each group in members. */
+      private final int[] end;
+      /** point indices ordered by group. */
+      private final int[] members;
+      /** a group's positions along its segment, each packed with its index. */
+      private final long[] position;
+   
+      Scratch(int n) {
+         map = new SlopeMap(n);
+         group = new int[n];
+         end = new int[n + 1];
+         members = new int[n];
+         position = new long[n];
+      }
+   
+   }
+
+   /**
+    * Finds the segments through anchors [from, to), splitting the range in
+    * half until it is no longer than leaf.
+    */
+   private final class AnchorTask extends RecursiveTask<List<Segment>> {
+   
+      private static final long serialVersionUID = 1L;
+      private final int from;
+      private final int to;
+      private final int leaf;
+   
+      AnchorTask(int from, int to, int leaf) {
+         this.from = from;
+         this.to = to;
+         this.leaf = leaf;
+      }
+   
+      @Override
+      protected List<Segment> compute() {
+         if (to - from <= leaf) {
+            Scratch scratch = new Scratch(set.size());
+            List<Segment> found = new ArrayList<Segment>();
+            for (int a = from; a < to; a++) {
+               collinear(a, scratch, found);
+            }
+            return found;
+         }
+         int mid = (from + to) >>> 1;
+         AnchorTask left = new AnchorTask(from, mid, leaf);
+         left.fork();
+         List<Segment> found = new AnchorTask(mid, to, leaf).compute();
+         List<Segment> leftFound = left.join();
+         leftFound.addAll(found);
+         return leftFound;
       }
    
-      return lines;
    }
    
 }
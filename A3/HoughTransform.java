@@ -0,0 +1,569 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * HoughTransform.java. Finds approximate line segments in noisy points.
+ * Every point votes, for each of a set of quantized angles theta, for the
+ * offset bin of rho = x cos theta + y sin theta, measured from the center
+ * of the points' bounding box. A line appears as a cell of the
+ * (theta, rho) accumulator that many points voted for. Angles are binned
+ * so finely that rho moves by at most an offset bin within one angle bin,
+ * so a line's votes stay within a few neighbouring cells. Offset bins are
+ * as wide as the tolerance, which takes about pi * R / tolerance angles
+ * for a box of radius R, but never more than MAX_ANGLES: beyond that the
+ * bins widen to keep the angles at the cap. The accumulator is never held
+ * whole: it is filled one angle at a time into dense arrays, keeping only
+ * the angles on either side, so memory is linear in the number of points
+ * and offset bins.
+ *
+ * <p>Cells whose votes, together with those of the offsets on either side,
+ * reach the minimum support and are not beaten by a neighbouring cell are
+ * refined exactly. Widened bins also collect the votes of unrelated
+ * points, so then a cell's votes must also stand out from the background
+ * of the nearby offsets by SIGNIFICANCE standard deviations, and the line
+ * is first located by scanning finer angles, coarsely and then finely,
+ * over the points that voted near it. The points near the cell's line are
+ * then fitted by total least squares, a few times over, and those within
+ * the tolerance of the final fit form the segment. Voting takes O(n * A)
+ * for A = min(pi * R / tolerance, MAX_ANGLES), split by angle across the
+ * common ForkJoinPool. Refining a cell takes O(m) for the m points that
+ * voted near it, and, when the bins are widened, O(m log m) for each of
+ * about 2 * SEED_BINS * pi * R / (A * tolerance * SEED_COARSENESS) scanned
+ * angles. Peaks of one angle are at least two bins apart, so with bins
+ * as wide as the tolerance refinement costs no more than voting; with
+ * widened bins, few cells stand out from the background except on lines.
+ * The price of the cap is that in dense data, lines too short to stand
+ * out from a widened bin's background are not found.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+final class HoughTransform {
+
+   /** most angle bins. */
+   private static final int MAX_ANGLES = 1 << 13;
+
+   /** fewest angles a task is split down to. */
+   private static final int MIN_ANGLES_PER_TASK = 64;
+
+   /** standard deviations above the background a widened cell must be. */
+   private static final int SIGNIFICANCE = 4;
+
+   /** offset bins on either side of a peak whose points are refined. */
+   private static final int WINDOW = 3;
+
+   /** number of least squares fits made when refining a candidate. */
+   private static final int REFINE_PASSES = 3;
+
+   /** angle bins on either side of a widened cell scanned for its line. */
+   private static final int SEED_BINS = 4;
+
+   /** fine angle steps in one step of the first, coarser seed scan. */
+   private static final int SEED_COARSENESS = 4;
+
+   /** points to find lines in. */
+   private final PointSet set;
+
+   /** largest distance of a point from a fitted line. */
+   private final double tolerance;
+
+   /** fewest points on a line. */
+   private final int minSupport;
+
+   /** center of the bounding box, which offsets are measured from. */
+   private final double cx;
+   private final double cy;
+
+   /** width of an offset bin, and the number of bins on either side. */
+   private final double width;
+   private final int offsets;
+
+   /** angle step of the finer scan made within a widened cell. */
+   private final double step;
+
+   /** coordinates of each point from the center, in bin widths. */
+   private final double[] u;
+   private final double[] v;
+
+   /** number of angle bins, and the cosine and sine of each angle. */
+   private final int angles;
+   private final double[] cos;
+   private final double[] sin;
+
+   /**
+    * Sets up a transform of set. If tolerance is not positive or minSupport
+    * is less than 2, throw an IllegalArgumentException.
+    * @param set points to find lines in
+    * @param tolerance largest distance of a point from its line
+    * @param minSupport fewest points on a line
+    */
+   HoughTransform(PointSet set, double tolerance, int minSupport) {
+      if (!(tolerance > 0) || minSupport < 2) {
+         throw new IllegalArgumentException();
+      }
+      this.set = set;
+      this.tolerance = tolerance;
+      this.minSupport = minSupport;
+      int minX = set.size() == 0 ? 0 : Integer.MAX_VALUE;
+      int maxX = 0;
+      int minY = minX;
+      int maxY = 0;
+      for (int i = 0; i < set.size(); i++) {
+         minX = Math.min(minX, set.x(i));
+         maxX = Math.max(maxX, set.x(i));
+         minY = Math.min(minY, set.y(i));
+         maxY = Math.max(maxY, set.y(i));
+      }
+      cx = ((double) minX + maxX) / 2;
+      cy = ((double) minY + maxY) / 2;
+      double radius = Math.hypot(maxX - cx, maxY - cy);
+      width = Math.max(tolerance, Math.PI * radius / (MAX_ANGLES - 4));
+      offsets = (int) Math.ceil(radius / width) + 1;
+      step = tolerance / (radius + tolerance);
+      u = new double[set.size()];
+      v = new double[set.size()];
+      for (int i = 0; i < set.size(); i++) {
+         u[i] = (set.x(i) - cx) / width;
+         v[i] = (set.y(i) - cy) / width;
+      }
+      angles = (int) Math.ceil(Math.PI * (radius + width) / width);
+      cos = new double[angles];
+      sin = new double[angles];
+      for (int a = 0; a < angles; a++) {
+         cos[a] = Math.cos(Math.PI * a / angles);
+         sin[a] = Math.sin(Math.PI * a / angles);
+      }
+   }
+
+   /**
+    * Returns the approximate line segments of at least minSupport points.
+    * @return return set of lines
+    */
+   SortedSet<Line> lines() {
+      SortedSet<Line> lines = new TreeSet<Line>();
+      if (set.size() < minSupport) {
+         return lines;
+      }
+      List<int[]> found = ForkJoinPool.commonPool().invoke(new AngleTask(0, angles));
+      found.sort(Comparator.comparingInt((int[] m) -> m.length).reversed());
+      int[] owner = new int[set.size()];
+      Arrays.fill(owner, -1);
+      int accepted = 0;
+      for (int[] members : found) {
+         if (isDuplicate(members, owner)) {
+            continue;
+         }
+         List<Point> points = new ArrayList<Point>(members.length);
+         for (int i : members) {
+            points.add(set.point(i));
+            if (owner[i] < 0) {
+               owner[i] = accepted;
+            }
+         }
+         accepted++;
+         lines.add(Line.approximate(points));
+      }
+      return lines;
+   }
+
+   /**
+    * Returns true if more than half of members belong to one line already
+    * accepted, which means members is that line again, found from a
+    * neighbouring peak. Distinct lines only share the points near where
+    * they cross.
+    * @param members indices of the points of a refined line
+    * @param owner the first accepted line of each point, or -1
+    * @return return if members repeats an accepted line
+    */
+   private static boolean isDuplicate(int[] members, int[] owner) {
+      int[] owners = new int[members.length];
+      int count = 0;
+      for (int i : members) {
+         if (owner[i] >= 0) {
+            owners[count++] = owner[i];
+         }
+      }
+      Arrays.sort(owners, 0, count);
+      for (int i = 0, run = 0; i < count; i++) {
+         run = (i > 0 && owners[i] == owners[i - 1]) ? run + 1 : 1;
+         if (2 * run > members.length) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Returns true if bin b of slice cur reaches the minimum support and no
+    * neighbouring cell, in angle or offset, has a higher score, ties going
+    * to the lower angle and then the lower offset. If bins are widened, b
+    * must also exceed the background by half the minimum support and by
+    * SIGNIFICANCE standard deviations of the background.
+    * @param prev votes of the previous angle
+    * @param cur votes of the angle of b
+    * @param next votes of the next angle
+    * @param b offset bin to check
+    * @return return if b is a peak
+    */
+   private boolean isPeak(Slice prev, Slice cur, Slice next, int b) {
+      int score = cur.score(b);
+      if (score < minSupport) {
+         return false;
+      }
+      if (width > tolerance) {
+         int background = cur.background(b);
+         int excess = score - background;
+         if (2 * excess < minSupport || excess < SIGNIFICANCE * Math.sqrt(background)) {
+            return false;
+         }
+      }
+      Slice[] slices = {prev, cur, next};
+      for (int da = -1; da <= 1; da++) {
+         Slice other = slices[da + 1];
+         for (int dr = -1; dr <= 1; dr++) {
+            if ((da != 0 || dr != 0) && other.counts[b + dr] > 0) {
+               int s = other.score(b + dr);
+               if (s > score || (s == score && (da < 0 || (da == 0 && dr < 0)))) {
+                  return false;
+               }
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Refines the line of bin b of slice cur exactly. Only the points that
+    * voted within WINDOW bins of b are considered. The search starts from
+    * the cell's center line, or, if bins are widened, from the densest
+    * strip twice the tolerance wide found by seed. The points within two
+    * bin widths of it are fitted by total least squares, and the fit is
+    * repeated on the points within the tolerance of the last fit, so the
+    * line settles on its points. The indices of the points within the
+    * tolerance of the final fit are returned, or none if too few points
+    * are near at any pass.
+    * @param cur votes of the angle of b
+    * @param b offset bin to refine
+    * @param window scratch for the considered points
+    * @param near scratch for the points near the line
+    * @param rho scratch for the offsets of the considered points
+    * @return return the indices of the points on the refined line
+    */
+   private int[] refine(Slice cur, int b, int[] window, int[] near, double[] rho) {
+      int size = 0;
+      for (int w = Math.max(0, b - WINDOW); w <= Math.min(cur.counts.length - 1, b + WINDOW); w++) {
+         for (int i = cur.head[w] - 1; i >= 0; i = cur.next[i] - 1) {
+            window[size++] = i;
+         }
+      }
+      if (size < minSupport) {
+         return new int[0];
+      }
+      Arrays.sort(window, 0, size);
+      double[] line = width > tolerance ? seed(cur.angle, window, size, rho)
+         : new double[] {cos[cur.angle], sin[cur.angle], (b - offsets - 1 + 0.5) * width};
+      if (line == null) {
+         return new int[0];
+      }
+      double nx = line[0];
+      double ny = line[1];
+      double c = line[2];
+      double band = 2 * Math.min(width, tolerance);
+      int count = 0;
+      for (int pass = 0; pass <= REFINE_PASSES; pass++) {
+         count = 0;
+         double sx = 0;
+         double sy = 0;
+         for (int j = 0; j < size; j++) {
+            int i = window[j];
+            double x = set.x(i) - cx;
+            double y = set.y(i) - cy;
+            if (Math.abs(x * nx + y * ny - c) <= band) {
+               near[count++] = i;
+               sx += x;
+               sy += y;
+            }
+         }
+         if (count < minSupport) {
+            return new int[0];
+         }
+         if (pass == REFINE_PASSES) {
+            break;
+         }
+         double mx = sx / count;
+         double my = sy / count;
+         double sxx = 0;
+         double sxy = 0;
+         double syy = 0;
+         for (int j = 0; j < count; j++) {
+            double x = set.x(near[j]) - cx - mx;
+            double y = set.y(near[j]) - cy - my;
+            sxx += x * x;
+            sxy += x * y;
+            syy += y * y;
+         }
+         double phi = Math.atan2(2 * sxy, sxx - syy) / 2;
+         nx = -Math.sin(phi);
+         ny = Math.cos(phi);
+         c = mx * nx + my * ny;
+         band = tolerance;
+      }
+      return Arrays.copyOf(near, count);
+   }
+
+   /**
+    * Locates a line within a widened cell of angle bin a. A line much
+    * shorter than the box keeps its votes in one offset bin over several
+    * angles, so its peak may lie a few angle bins from its true angle, and
+    * angles up to SEED_BINS angle bins on either side of a are scanned.
+    * At each angle the offsets of the considered points are sorted to find
+    * the strip that holds the most of them. The scan is made first in
+    * steps SEED_COARSENESS times too coarse, with strips widened to match,
+    * and then in fine steps, which move rho by at most the tolerance, with
+    * strips twice the tolerance wide around the best coarse angle. Returns
+    * the unit normal and offset of the center of the best fine strip, or
+    * null if no strip holds the minimum support.
+    * @param a angle bin of the cell
+    * @param window the considered points
+    * @param size number of considered points
+    * @param rho scratch for their offsets
+    * @return return nx, ny and the offset of the line, or null
+    */
+   private double[] seed(int a, int[] window, int size, double[] rho) {
+      double coarse = SEED_COARSENESS * step;
+      int steps = (int) Math.ceil(SEED_BINS * Math.PI / angles / coarse);
+      double[] center = new double[1];
+      double theta = Math.PI * a / angles;
+      int most = -1;
+      for (int k = -steps; k <= steps; k++) {
+         double t = Math.PI * a / angles + k * coarse;
+         int count = densest(t, 2 * SEED_COARSENESS * tolerance, window, size, rho, center);
+         if (count > most) {
+            most = count;
+            theta = t;
+         }
+      }
+      double[] best = null;
+      most = minSupport - 1;
+      for (int k = -SEED_COARSENESS; k <= SEED_COARSENESS; k++) {
+         double t = theta + k * step;
+         int count = densest(t, 2 * tolerance, window, size, rho, center);
+         if (count > most) {
+            most = count;
+            best = new double[] {Math.cos(t), Math.sin(t), center[0]};
+         }
+      }
+      return best;
+   }
+
+   /**
+    * Returns the most considered points that lie in one strip of the given
+    * width at angle theta, and stores the offset of that strip's center.
+    * @param theta angle of the strip's normal
+    * @param wide width of the strip
+    * @param window the considered points
+    * @param size number of considered points
+    * @param rho scratch for their offsets
+    * @param center receives the offset of the best strip's center
+    * @return return the number of points in the best strip
+    */
+   private int densest(double theta, double wide, int[] window, int size, double[] rho,
+                       double[] center) {
+      double nx = Math.cos(theta);
+      double ny = Math.sin(theta);
+      for (int j = 0; j < size; j++) {
+         rho[j] = (set.x(window[j]) - cx) * nx + (set.y(window[j]) - cy) * ny;
+      }
+      Arrays.sort(rho, 0, size);
+      int most = 0;
+      for (int lo = 0, hi = 0; lo < size; lo++) {
+         while (hi < size && rho[hi] - rho[lo] <= wide) {
+            hi++;
+         }
+         if (hi - lo > most) {
+            most = hi - lo;
+            center[0] = (rho[lo] + rho[hi - 1]) / 2;
+         }
+      }
+      return most;
+   }
+
+   /**
+    * The votes of every point for one angle, as a dense count per offset
+    * bin and a chain of the points in each bin. Bins 0 and the last are
+    * padding that no point votes for, so bins on either side of any voted
+    * bin can be read without bounds checks. Clearing only touches the bins
+    * voted for, so one slice is reused for every angle.
+    */
+   private final class Slice {
+
+      /** angle voted for, or -1 if the slice is empty. */
+      private int angle = -1;
+
+      /** votes in each offset bin. */
+      private final int[] counts = new int[2 * offsets + 3];
+
+      /** first point plus one in each bin, and the next point plus one. */
+      private final int[] head = new int[2 * offsets + 3];
+      private final int[] next = new int[set.size()];
+
+      /** bins voted for; only the first used are in use. */
+      private final int[] touched = new int[set.size()];
+      private int used;
+
+      /**
+       * Fills the slice with every point's vote for angle a. The offset in
+       * bins is at least -offsets + 1, so shifted by offsets + 1 it is
+       * positive and truncation rounds it down.
+       * @param a angle bin
+       */
+      void vote(int a) {
+         clear();
+         angle = a;
+         double base = offsets + 1;
+         for (int i = 0; i < u.length; i++) {
+            int b = (int) (u[i] * cos[a] + v[i] * sin[a] + base);
+            if (counts[b]++ == 0) {
+               touched[used++] = b;
+            }
+            next[i] = head[b];
+            head[b] = i + 1;
+         }
+      }
+
+      /**
+       * Removes all votes, in time proportional to the bins voted for.
+       */
+      void clear() {
+         for (int t = 0; t < used; t++) {
+            counts[touched[t]] = 0;
+            head[touched[t]] = 0;
+         }
+         used = 0;
+         angle = -1;
+      }
+
+      /**
+       * Returns the votes expected for bin b and the bins on either side of
+       * it from the points that are on no line there, estimated from the
+       * bins a few bins away on either side.
+       * @param b offset bin, neither the first nor the last
+       * @return return the background score of b
+       */
+      int background(int b) {
+         int sum = 0;
+         int bins = 0;
+         for (int d = WINDOW + 1; d <= 2 * WINDOW; d++) {
+            if (b - d >= 1) {
+               sum += counts[b - d];
+               bins++;
+            }
+            if (b + d <= counts.length - 2) {
+               sum += counts[b + d];
+               bins++;
+            }
+         }
+         return bins == 0 ? 0 : 3 * sum / bins;
+      }
+
+      /**
+       * Returns the votes for bin b and the bins on either side of it.
+       * @param b offset bin, neither the first nor the last
+       * @return return the score of b
+       */
+      int score(int b) {
+         return counts[b - 1] + counts[b] + counts[b + 1];
+      }
+
+   }
+
+   /**
+    * Finds and refines the peaks of angles [from, to), splitting the range
+    * in half until it is small. A leaf votes one angle at a time, keeping
+    * the angles on either side for the peak test, so it also votes the
+    * angle just outside each end of its range.
+    */
+   private final class AngleTask extends RecursiveTask<List<int[]>> {
+
+      private static final long serialVersionUID = 1L;
+      private final int from;
+      private final int to;
+
+      AngleTask(int from, int to) {
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected List<int[]> compute() {
+         int leaf = Math.max(MIN_ANGLES_PER_TASK,
+                             angles / (ForkJoinPool.getCommonPoolParallelism() * 4) + 1);
+         if (to - from <= leaf) {
+            return peaks();
+         }
+         int mid = (from + to) >>> 1;
+         AngleTask left = new AngleTask(from, mid);
+         left.fork();
+         List<int[]> right = new AngleTask(mid, to).compute();
+         List<int[]> found = left.join();
+         found.addAll(right);
+         return found;
+      }
+
+      /**
+       * Returns the refined lines of the peaks of this task's angles, by
+       * angle and then by offset.
+       * @return return the point indices of each refined line
+       */
+      private List<int[]> peaks() {
+         List<int[]> found = new ArrayList<int[]>();
+         Slice prev = new Slice();
+         Slice cur = new Slice();
+         Slice next = new Slice();
+         int[] window = new int[set.size()];
+         int[] near = new int[set.size()];
+         double[] rho = new double[set.size()];
+         int[] bins = new int[set.size()];
+         if (from > 0) {
+            prev.vote(from - 1);
+         }
+         cur.vote(from);
+         for (int a = from; a < to; a++) {
+            if (a + 1 < angles) {
+               next.vote(a + 1);
+            }
+            else {
+               next.clear();
+            }
+            int count = 0;
+            for (int t = 0; t < cur.used; t++) {
+               if (isPeak(prev, cur, next, cur.touched[t])) {
+                  bins[count++] = cur.touched[t];
+               }
+            }
+            Arrays.sort(bins, 0, count);
+            for (int j = 0; j < count; j++) {
+               int[] members = refine(cur, bins[j], window, near, rho);
+               if (members.length >= minSupport) {
+                  found.add(members);
+               }
+            }
+            Slice spare = prev;
+            prev = cur;
+            cur = next;
+            next = spare;
+         }
+         return found;
+      }
+
+   }
+
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * IncrementalExtractor.java. Maintains the maximal line segments of at
+ * least four collinear points in a set of points that grows one point at a
+ * time. Each added point is only compared with the points already present:
+ * they are grouped by their exact slope key from the new point, and every
+ * group of three or more is a line through it that has just reached four
+ * points or grown by one. Every point on a line keeps a map from the
+ * line's slope key to the line, so the line a group already forms is
+ * found from any one of its points, and is extended by copying its sorted
+ * points rather than rebuilding it. Lines through the new point share no
+ * other point, so an insert takes expected time linear in the number of
+ * points, and only points on lines hold map entries.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+public class IncrementalExtractor {
+
+   /** distinct points added so far; only the first size are in use. */
+   private Point[] points = new Point[16];
+   private int size;
+
+   /** the same points, to reject duplicates. */
+   private final SortedSet<Point> seen = new TreeSet<Point>();
+
+   /** current maximal lines. */
+   private final SortedSet<Line> lines = new TreeSet<Line>();
+
+   /** the current version of each line, by the order it was found. */
+   private final List<Line> current = new ArrayList<Line>();
+
+   /** for each point, the lines through it by slope key, or null if none. */
+   private final List<Map<Long, Integer>> through = new ArrayList<Map<Long, Integer>>();
+
+   /** receives the lines each insert adds or extends. */
+   private final LineListener listener;
+
+   /** scratch: slope groups from the new point. */
+   private final SlopeMap map = new SlopeMap(16);
+
+   /** scratch: group number of each point, and end offset of each group. */
+   private int[] group = new int[16];
+   private int[] end = new int[17];
+
+   /** scratch: point indices ordered by group. */
+   private int[] members = new int[16];
+
+   /**
+    * Builds an empty incremental extractor that reports to listener. If
+    * listener is null, throw an IllegalArgumentException.
+    * @param listener receives added and extended lines
+    */
+   public IncrementalExtractor(LineListener listener) {
+      if (listener == null) {
+         throw new IllegalArgumentException();
+      }
+      this.listener = listener;
+   }
+
+   /**
+    * Adds the point p, reporting to the listener every line that p
+    * completes or extends, and returns true. If p is already present,
+    * nothing changes and false is returned. If p is null, throw an
+    * IllegalArgumentException.
+    * @param p point to add
+    * @return return if the point has been added
+    */
+   public boolean addPoint(Point p) {
+      if (p == null) {
+         throw new IllegalArgumentException();
+      }
+      if (!seen.add(p)) {
+         return false;
+      }
+      if (size == points.length) {
+         points = Arrays.copyOf(points, size * 2);
+         group = new int[size * 2];
+         end = new int[size * 2 + 1];
+         members = new int[size * 2];
+      }
+      map.clear();
+      for (int i = 0; i < size; i++) {
+         group[i] = map.group(p.slopeKey(points[i]));
+      }
+      int groups = map.size();
+      Arrays.fill(end, 0, groups + 1, 0);
+      for (int i = 0; i < size; i++) {
+         end[group[i] + 1]++;
+      }
+      for (int g = 0; g < groups; g++) {
+         end[g + 1] += end[g];
+      }
+      for (int i = 0; i < size; i++) {
+         members[end[group[i]]++] = i;
+      }
+      int index = size;
+      points[size++] = p;
+      through.add(null);
+
+      int from = 0;
+      for (int g = 0; g < groups; g++) {
+         if (end[g] - from >= 3) {
+            long key = map.key(g);
+            Map<Long, Integer> onFirst = through.get(members[from]);
+            Integer id = onFirst == null ? null : onFirst.get(key);
+            if (id == null) {
+               List<Point> on = new ArrayList<Point>(end[g] - from + 1);
+               for (int i = from; i < end[g]; i++) {
+                  on.add(points[members[i]]);
+               }
+               on.add(p);
+               Line line = new Line(on);
+               id = current.size();
+               current.add(line);
+               for (int i = from; i < end[g]; i++) {
+                  register(members[i], key, id);
+               }
+               register(index, key, id);
+               lines.add(line);
+               listener.lineAdded(line);
+            }
+            else {
+               Line before = current.get(id);
+               Line after = before.with(p);
+               current.set(id, after);
+               register(index, key, id);
+               lines.remove(before);
+               lines.add(after);
+               listener.lineExtended(before, after);
+            }
+         }
+         from = end[g];
+      }
+      return true;
+   }
+
+   /**
+    * Records that the line numbered id passes through point i with the
+    * given slope key.
+    * @param i index of the point
+    * @param key slope key of the line
+    * @param id number of the line
+    */
+   private void register(int i, long key, int id) {
+      Map<Long, Integer> lines = through.get(i);
+      if (lines == null) {
+         lines = new HashMap<Long, Integer>(4);
+         through.set(i, lines);
+      }
+      lines.put(key, id);
+   }
+
+   /**
+    * Returns the number of distinct points added.
+    * @return return the number of points
+    */
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns a read-only view of the current maximal line segments of at
+    * least four collinear points.
+    * @return return set of lines
+    */
+   public SortedSet<Line> getLines() {
+      return Collections.unmodifiableSortedSet(lines);
+   }
+
+}
@@ -37,6 +37,32 @@ public class Line implements Comparable<Line>, Iterable<Point> {
       }         
    }
  
+   /**
+    * Creates a line of the points in c without checking that they are
+    * collinear, for segments found by approximate extraction.
+    * @param c collection to import
+    * @return return the line
+    */
+   static Line approximate(Collection<Point> c) {
+      Line l = new Line();
+      l.line.addAll(c);
+      return l;
+   }
+
+   /**
+    * Returns a new line of the points of this line and p, leaving this line
+    * unchanged. p is not checked for collinearity. The points are copied in
+    * time linear in the length of this line, since they are already sorted.
+    * @param p point to add
+    * @return return the extended line
+    */
+   Line with(Point p) {
+      Line l = new Line();
+      l.line = new TreeSet<Point>(line);
+      l.line.add(p);
+      return l;
+   }
+ 
    /** 
     * Adds the point p to this line if p is collinear with all points already
     * in the line and p itself is not already in the line. Returns true if this
@@ -51,14 +77,7 @@ public class Line implements Comparable<Line>, Iterable<Point> {
       }
       else {
          if (p.slopeOrder.compare(first(), last()) == 0) {
-            Iterator<Point> itr = iterator();
-            while (itr.hasNext()) {
-               if (p.compareTo(itr.next()) == 0) {
-                  return false;
-               }
-            }
-            line.add(p);
-            return true;
+            return line.add(p);
          }
          else {
             return false;
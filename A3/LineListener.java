@@ -0,0 +1,27 @@
+/**
+ * LineListener.java. Receives the lines that an IncrementalExtractor finds
+ * or changes as points are added.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+public interface LineListener {
+
+   /**
+    * Called when an added point completes a new line segment of four
+    * collinear points.
+    * @param line the new line
+    */
+   void lineAdded(Line line);
+
+   /**
+    * Called when an added point lies on an existing line segment of four or
+    * more collinear points, making it longer.
+    * @param before the line without the added point
+    * @param after the line with the added point
+    */
+   void lineExtended(Line before, Line after);
+
+}
@@ -34,6 +34,22 @@ public final class Point implements Comparable<Point> {
       this.y = y;
    }
 
+   /**
+    * Returns the x coordinate of this point.
+    * @return return x
+    */
+   int x() {
+      return x;
+   }
+
+   /**
+    * Returns the y coordinate of this point.
+    * @return return y
+    */
+   int y() {
+      return y;
+   }
+
    /** 
     * Return a string representation of this point.
     * 
@@ -112,6 +128,50 @@ public final class Point implements Comparable<Point> {
       return slope;
    }
       
+   /**
+    * Returns the exact slope of the line segment between this point and the
+    * specified point as a key: the difference (dy, dx) reduced to lowest
+    * terms with dx made non-negative, packed as dy in the high 32 bits and
+    * dx in the low 32 bits. Two points make the same slope with this point
+    * if and only if their keys are equal, with no floating-point rounding.
+    * Every vertical segment has key (1, 0), every horizontal segment has key
+    * (0, 1), and a degenerate segment (where this point and the specified
+    * point are the same) has key 0.
+    * @param that point to get the slope key
+    * @return return the slope key
+    */
+   public long slopeKey(Point that) {
+      return slopeKey(that.x - this.x, that.y - this.y);
+   }
+
+   /**
+    * Returns the slope key of the difference (dx, dy). See slopeKey(Point).
+    * Coordinates are non-negative ints, so neither difference overflows.
+    * @param dx difference in x
+    * @param dy difference in y
+    * @return return the slope key
+    */
+   static long slopeKey(int dx, int dy) {
+      if (dx == 0) {
+         return dy == 0 ? 0L : 1L << 32;
+      }
+      if (dy == 0) {
+         return 1L;
+      }
+      if (dx < 0) {
+         dx = -dx;
+         dy = -dy;
+      }
+      int a = dx;
+      int b = Math.abs(dy);
+      while (b != 0) {
+         int t = a % b;
+         a = b;
+         b = t;
+      }
+      return ((long) (dy / a) << 32) | (dx / a);
+   }
+      
    /**
     * Defines a total order for Points based on the slope that two specified 
     * points make with this point.
@@ -126,10 +186,12 @@ public final class Point implements Comparable<Point> {
        */
       @Override   
       public int compare(Point p1, Point p2) {
-         if (slopeTo(p1) < slopeTo(p2)) {
+         double s1 = slopeTo(p1);
+         double s2 = slopeTo(p2);
+         if (s1 < s2) {
             return -1;
          }
-         else if (slopeTo(p1) > slopeTo(p2)) {
+         else if (s1 > s2) {
             return 1;
          }
          else {
@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.function.LongConsumer;
+
+/**
+ * PointLoader.java. Loads point files straight into a PointSet by memory
+ * mapping them. A text file holds the number of points followed by that
+ * many x y pairs, as integers separated by whitespace, and is parsed by a
+ * byte scanner rather than a Scanner. A binary file holds the MAGIC int,
+ * the number of points, and then the points as packed x y int pairs, all
+ * little-endian, and is copied into the coordinate arrays in bulk.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+final class PointLoader {
+
+   /** first int of a binary point file: the bytes "PNTS". */
+   static final int MAGIC = 0x53544E50;
+
+   /** bytes in the header of a binary point file. */
+   private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+   /** bytes of a text file mapped at a time. */
+   private static final int CHUNK_BYTES = 1 << 30;
+
+   /** ints copied out of a binary file at a time. */
+   private static final int BLOCK_INTS = 1 << 16;
+
+   /**
+    * Can't instantiate this class.
+    */
+   private PointLoader() { }
+
+   /**
+    * Loads the points in file, which may be in either the text or the
+    * binary format; a file starting with MAGIC is read as binary.
+    * @param file point file
+    * @return return the points
+    * @throws IOException if the file cannot be read
+    */
+   static PointSet load(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         ByteBuffer head = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+         while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            continue;
+         }
+         if (!head.hasRemaining() && head.getInt(0) == MAGIC) {
+            return binary(channel);
+         }
+         return text(channel);
+      }
+   }
+
+   /**
+    * Returns the number of points in a binary point file, from its header.
+    * @param file binary point file
+    * @return return the number of points
+    * @throws IOException if the file cannot be read
+    */
+   static int size(Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         return header(channel);
+      }
+   }
+
+   /**
+    * Passes each point of a binary point file to action, in file order, as
+    * its y coordinate in the high 32 bits and its x coordinate in the low
+    * 32 bits, which orders points as Point does. The file is mapped a chunk
+    * at a time, so it need not fit in memory. If a coordinate is negative,
+    * throw an IllegalArgumentException.
+    * @param file binary point file
+    * @param action receives each packed point
+    * @throws IOException if the file cannot be read
+    */
+   static void scan(Path file, LongConsumer action) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+         int n = header(channel);
+         int chunkPoints = CHUNK_BYTES / (2 * Integer.BYTES);
+         for (int first = 0; first < n; first += chunkPoints) {
+            int count = Math.min(chunkPoints, n - first);
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY,
+                                         HEADER_BYTES + 2L * Integer.BYTES * first,
+                                         2L * Integer.BYTES * count)
+                                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            while (ints.hasRemaining()) {
+               int x = ints.get();
+               int y = ints.get();
+               if (x < 0 || y < 0) {
+                  throw new IllegalArgumentException();
+               }
+               action.accept(((long) y << 32) | x);
+            }
+         }
+      }
+   }
+
+   /**
+    * Writes set to file in the binary format.
+    * @param set points to write
+    * @param file file to write
+    * @throws IOException if the file cannot be written
+    */
+   static void writeBinary(PointSet set, Path file) throws IOException {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+         ByteBuffer buf = ByteBuffer.allocateDirect(BLOCK_INTS * Integer.BYTES)
+                                    .order(ByteOrder.LITTLE_ENDIAN);
+         buf.putInt(MAGIC).putInt(set.size());
+         for (int i = 0; i < set.size(); i++) {
+            if (buf.remaining() < 2 * Integer.BYTES) {
+               drain(buf, channel);
+            }
+            buf.putInt(set.x(i)).putInt(set.y(i));
+         }
+         drain(buf, channel);
+      }
+   }
+
+   /**
+    * Reads a binary point file.
+    * @param channel open channel on the file
+    * @return return the points
+    * @throws IOException if the file cannot be read
+    */
+   private static PointSet binary(FileChannel channel) throws IOException {
+      int n = header(channel);
+      int[] xs = new int[n];
+      int[] ys = new int[n];
+      int[] block = new int[BLOCK_INTS];
+      int chunkPoints = CHUNK_BYTES / (2 * Integer.BYTES);
+      for (int first = 0; first < n; first += chunkPoints) {
+         int count = Math.min(chunkPoints, n - first);
+         IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY,
+                                      HEADER_BYTES + 2L * Integer.BYTES * first,
+                                      2L * Integer.BYTES * count)
+                                 .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+         int i = first;
+         while (ints.hasRemaining()) {
+            int length = Math.min(block.length, ints.remaining());
+            ints.get(block, 0, length);
+            for (int j = 0; j < length; j += 2) {
+               xs[i] = block[j];
+               ys[i] = block[j + 1];
+               i++;
+            }
+         }
+      }
+      return new PointSet(xs, ys);
+   }
+
+   /**
+    * Checks the header of a binary point file and returns its number of
+    * points.
+    * @param channel open channel on the file
+    * @return return the number of points
+    * @throws IOException if the file cannot be read
+    */
+   private static int header(FileChannel channel) throws IOException {
+      if (channel.size() < HEADER_BYTES) {
+         throw new NoSuchElementException();
+      }
+      MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      if (header.getInt(0) != MAGIC) {
+         throw new InputMismatchException();
+      }
+      int n = header.getInt(Integer.BYTES);
+      if (n < 0) {
+         throw new InputMismatchException();
+      }
+      if (channel.size() < HEADER_BYTES + 2L * Integer.BYTES * n) {
+         throw new NoSuchElementException();
+      }
+      return n;
+   }
+
+   /**
+    * Parses a text point file. Reading stops after the number of points
+    * given by the first integer, so any trailing data is ignored.
+    * @param channel open channel on the file
+    * @return return the points
+    * @throws IOException if the file cannot be read
+    */
+   private static PointSet text(FileChannel channel) throws IOException {
+      TextParser parser = new TextParser();
+      long size = channel.size();
+      for (long offset = 0; offset < size && !parser.done(); offset += CHUNK_BYTES) {
+         MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                                            Math.min(CHUNK_BYTES, size - offset));
+         int limit = buf.limit();
+         for (int i = 0; i < limit && !parser.done(); i++) {
+            parser.accept(buf.get(i));
+         }
+      }
+      return parser.finish();
+   }
+
+   /**
+    * Writes out the contents of buf and clears it.
+    * @param buf buffer to write
+    * @param channel channel to write to
+    * @throws IOException if the write fails
+    */
+   private static void drain(ByteBuffer buf, FileChannel channel) throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) {
+         channel.write(buf);
+      }
+      buf.clear();
+   }
+
+   /**
+    * Parses whitespace-separated integers one byte at a time, keeping its
+    * place between calls so a number may span two mapped chunks. The first
+    * integer sizes the coordinate arrays and the rest fill them in turn.
+    * Malformed input throws an InputMismatchException and missing input a
+    * NoSuchElementException, as Scanner would.
+    */
+   private static final class TextParser {
+   
+      /** coordinates, allocated once the number of points is read. */
+      private int[] xs;
+      private int[] ys;
+      /** number of coordinates stored. */
+      private long count;
+      /** magnitude of the number being read. */
+      private long value;
+      /** whether the number being read has a digit, and a sign. */
+      private boolean digits;
+      private boolean signed;
+      private boolean negative;
+   
+      /**
+       * Returns true once every coordinate has been read.
+       * @return return if parsing is complete
+       */
+      boolean done() {
+         return xs != null && count == 2L * xs.length;
+      }
+   
+      /**
+       * Consumes the next byte of input.
+       * @param b byte to consume
+       */
+      void accept(int b) {
+         if (b >= '0' && b <= '9') {
+            value = value * 10 + (b - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+               throw new InputMismatchException();
+            }
+            digits = true;
+         }
+         else if (b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f') {
+            if (digits) {
+               store();
+            }
+            else if (signed) {
+               throw new InputMismatchException();
+            }
+         }
+         else if ((b == '-' || b == '+') && !digits && !signed) {
+            signed = true;
+            negative = b == '-';
+         }
+         else {
+            throw new InputMismatchException();
+         }
+      }
+   
+      /**
+       * Ends the input and returns the points read.
+       * @return return the points
+       */
+      PointSet finish() {
+         if (digits && !done()) {
+            store();
+         }
+         else if (signed) {
+            throw new InputMismatchException();
+         }
+         if (!done()) {
+            throw new NoSuchElementException();
+         }
+         return new PointSet(xs, ys);
+      }
+   
+      /**
+       * Stores the number just read.
+       */
+      private void store() {
+         long v = negative ? -value : value;
+         if (v > Integer.MAX_VALUE) {
+            throw new InputMismatchException();
+         }
+         if (xs == null) {
+            if (v < 0) {
+               throw new InputMismatchException();
+            }
+            xs = new int[(int) v];
+            ys = new int[(int) v];
+         }
+         else if ((count & 1) == 0) {
+            xs[(int) (count++ >> 1)] = (int) v;
+         }
+         else {
+            ys[(int) (count++ >> 1)] = (int) v;
+         }
+         value = 0;
+         digits = false;
+         signed = false;
+         negative = false;
+      }
+   
+   }
+
+}
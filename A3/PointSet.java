@@ -0,0 +1,130 @@
+/**
+ * PointSet.java. Stores a fixed set of points as two parallel arrays of
+ * coordinates, so that collinearity can be computed on primitive values
+ * without a Point object, or a pointer to chase, per point. Points are
+ * referred to by index; a Point is only created when one is asked for.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+final class PointSet {
+
+   /** x coordinate of each point. */
+   private final int[] xs;
+
+   /** y coordinate of each point. */
+   private final int[] ys;
+
+   /**
+    * Builds a point set over the given coordinate arrays, which are used
+    * directly rather than copied. If the arrays differ in length or any
+    * coordinate is negative, throw an IllegalArgumentException.
+    * @param xs x coordinates
+    * @param ys y coordinates
+    */
+   PointSet(int[] xs, int[] ys) {
+      if (xs.length != ys.length) {
+         throw new IllegalArgumentException();
+      }
+      for (int i = 0; i < xs.length; i++) {
+         if (xs[i] < 0 || ys[i] < 0) {
+            throw new IllegalArgumentException();
+         }
+      }
+      this.xs = xs;
+      this.ys = ys;
+   }
+
+   /**
+    * Returns a point set holding the given points in the same order.
+    * @param points points to store
+    * @return return the point set
+    */
+   static PointSet of(Point[] points) {
+      int[] xs = new int[points.length];
+      int[] ys = new int[points.length];
+      for (int i = 0; i < points.length; i++) {
+         xs[i] = points[i].x();
+         ys[i] = points[i].y();
+      }
+      return new PointSet(xs, ys);
+   }
+
+   /**
+    * Returns the number of points in this set.
+    * @return return the number of points
+    */
+   int size() {
+      return xs.length;
+   }
+
+   /**
+    * Returns the x coordinate of point i.
+    * @param i index of the point
+    * @return return x
+    */
+   int x(int i) {
+      return xs[i];
+   }
+
+   /**
+    * Returns the y coordinate of point i.
+    * @param i index of the point
+    * @return return y
+    */
+   int y(int i) {
+      return ys[i];
+   }
+
+   /**
+    * Returns point i as a new Point.
+    * @param i index of the point
+    * @return return the point
+    */
+   Point point(int i) {
+      return new Point(xs[i], ys[i]);
+   }
+
+   /**
+    * Returns the slope key of the segment from point i to point j, as
+    * Point.slopeKey does.
+    * @param i index of the first point
+    * @param j index of the second point
+    * @return return the slope key
+    */
+   long slopeKey(int i, int j) {
+      return Point.slopeKey(xs[j] - xs[i], ys[j] - ys[i]);
+   }
+
+   /**
+    * Returns the position of point i along a line with the given slope key,
+    * such that points on one such line are in natural order exactly when
+    * their positions are in ascending order: the x coordinate on a
+    * horizontal line, and the y coordinate on any other.
+    * @param i index of the point
+    * @param key slope key of the line
+    * @return return the position of point i
+    */
+   int position(int i, long key) {
+      return key == 1L ? xs[i] : ys[i];
+   }
+
+   /**
+    * Compares point i with point j in the natural order of Point: first by
+    * y value and then by x value.
+    * @param i index of the first point
+    * @param j index of the second point
+    * @return return a negative integer, zero, or a positive integer as point
+    *         i is less than, equal to, or greater than point j
+    */
+   int compare(int i, int j) {
+      int com = Integer.compare(ys[i], ys[j]);
+      if (com == 0) {
+         com = Integer.compare(xs[i], xs[j]);
+      }
+      return com;
+   }
+
+}
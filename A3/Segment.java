@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Segment.java
+ * Models a maximal line segment of collinear points found by Extractor, by
+ * its two endpoints and its number of points rather than by a set of
+ * Points. The member points are only located, as a sorted array of indices
+ * into the extractor's points, if they are asked for. A Segment orders and
+ * compares equal exactly as the Line with the same points does, and
+ * toLine converts it to one.
+ *
+ * @author   Dargo Wang (yzw0060@auburn.edu)
+ * @author   Dean Hendrix (dh@auburn.edu)
+ * @version  2018-02-27
+ *
+ */
+public final class Segment implements Comparable<Segment> {
+
+   /** points the segment was found in. */
+   private final PointSet set;
+
+   /** index of a point on the segment, and the slope of the segment. */
+   private final int anchor;
+   private final long key;
+
+   /** indices of the first (minimum) and last (maximum) points. */
+   private final int first;
+   private final int last;
+
+   /** number of distinct points on the segment. */
+   private final int length;
+
+   /** indices of the distinct points in ascending order, once located. */
+   private int[] members;
+
+   /**
+    * Creates a segment of the points in set that lie on the line through
+    * point anchor with slope key.
+    * @param set points the segment was found in
+    * @param anchor index of a point on the segment
+    * @param key slope key of the segment
+    * @param first index of the first point
+    * @param last index of the last point
+    * @param length number of distinct points on the segment
+    */
+   Segment(PointSet set, int anchor, long key, int first, int last, int length) {
+      this.set = set;
+      this.anchor = anchor;
+      this.key = key;
+      this.first = first;
+      this.last = last;
+      this.length = length;
+   }
+
+   /**
+    * Returns the first (minimum) point in this segment.
+    * @return return first point
+    */
+   public Point first() {
+      return set.point(first);
+   }
+
+   /**
+    * Returns the last (maximum) point in this segment.
+    * @return return last point
+    */
+   public Point last() {
+      return set.point(last);
+   }
+
+   /**
+    * Returns the number of points in this segment.
+    * @return return numbers of points in the segment
+    */
+   public int length() {
+      return length;
+   }
+
+   /**
+    * Returns the indices of the distinct points on this segment in ascending
+    * natural order, locating them on the first call by one pass over the
+    * points. Of points that are equal, the lowest index is kept.
+    * @return return the member indices
+    */
+   int[] members() {
+      if (members == null) {
+         int n = set.size();
+         long[] found = new long[n];
+         int count = 0;
+         for (int i = 0; i < n; i++) {
+            long k = set.slopeKey(anchor, i);
+            if (k == key || k == 0) {
+               found[count++] = ((long) set.position(i, key) << 32) | i;
+            }
+         }
+         Arrays.sort(found, 0, count);
+         int[] m = new int[length];
+         int size = 0;
+         for (int i = 0; i < count; i++) {
+            if (i == 0 || (found[i] >>> 32) != (found[i - 1] >>> 32)) {
+               m[size++] = (int) found[i];
+            }
+         }
+         members = m;
+      }
+      return members;
+   }
+
+   /**
+    * Returns a Line containing the points of this segment.
+    * @return return the line
+    */
+   public Line toLine() {
+      int[] m = members();
+      List<Point> points = new ArrayList<Point>(m.length);
+      for (int i : m) {
+         points.add(set.point(i));
+      }
+      return new Line(points);
+   }
+
+   /**
+    * Compares this segment with the specified segment for order, first by
+    * their first points and then by their last points, as Line does.
+    */
+   @Override
+   public int compareTo(Segment that) {
+      int result = compare(this.set, this.first, that.set, that.first);
+      if (result == 0) {
+         result = compare(this.set, this.last, that.set, that.last);
+      }
+      return result;
+   }
+
+   /**
+    * Return true if this segment's first and last points are equal to the
+    * parameter's first and last points.
+    */
+   @Override
+   public boolean equals(Object obj) {
+      if (obj == null) {
+         return false;
+      }
+      if (obj == this) {
+         return true;
+      }
+      if (!(obj instanceof Segment)) {
+         return false;
+      }
+      return compareTo((Segment) obj) == 0;
+   }
+
+   /**
+    * Returns a hash code consistent with equals.
+    */
+   @Override
+   public int hashCode() {
+      int h = set.x(first);
+      h = 31 * h + set.y(first);
+      h = 31 * h + set.x(last);
+      return 31 * h + set.y(last);
+   }
+
+   /**
+    * Return a string representation of this segment, the same as that of
+    * the equivalent Line.
+    */
+   @Override
+   public String toString() {
+      return toLine().toString();
+   }
+
+   /**
+    * Compares point i of set a with point j of set b in natural order.
+    * @param a set of the first point
+    * @param i index of the first point
+    * @param b set of the second point
+    * @param j index of the second point
+    * @return return the comparison
+    */
+   private static int compare(PointSet a, int i, PointSet b, int j) {
+      int com = Integer.compare(a.y(i), b.y(j));
+      if (com == 0) {
+         com = Integer.compare(a.x(i), b.x(j));
+      }
+      return com;
+   }
+
+}
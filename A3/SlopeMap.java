@@ -0,0 +1,141 @@
+import java.util.Arrays;
+
+/**
+ * SlopeMap.java. Numbers the distinct slope keys seen from one anchor point
+ * densely from zero, so that points can be grouped by slope with primitive
+ * arrays instead of sorting. Keys live in an open-addressing table of
+ * primitive longs, and clearing only touches the slots in use, so one map
+ * can be reused for every anchor.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+final class SlopeMap {
+
+   /** keys stored in the table. */
+   private long[] keys;
+
+   /** group number plus one of the key in each slot, 0 for an empty slot. */
+   private int[] groups;
+
+   /** table slot of each group, for clearing. */
+   private int[] slots;
+
+   /** number of distinct keys in the map. */
+   private int size;
+
+   /**
+    * Builds an empty map that holds up to expected keys without growing.
+    * @param expected number of keys expected
+    */
+   SlopeMap(int expected) {
+      int length = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+      keys = new long[length];
+      groups = new int[length];
+      slots = new int[length / 2];
+   }
+
+   /**
+    * Returns the group number of key, numbering it next if it is new.
+    * @param key slope key
+    * @return return the group number, from 0 to size() - 1
+    */
+   int group(long key) {
+      int mask = keys.length - 1;
+      int h = hash(key) & mask;
+      while (groups[h] != 0) {
+         if (keys[h] == key) {
+            return groups[h] - 1;
+         }
+         h = (h + 1) & mask;
+      }
+      if (size == slots.length) {
+         grow();
+         return group(key);
+      }
+      keys[h] = key;
+      groups[h] = size + 1;
+      slots[size] = h;
+      return size++;
+   }
+
+   /**
+    * Returns the group number of key, or -1 if it is not in the map.
+    * @param key slope key
+    * @return return the group number, or -1
+    */
+   int find(long key) {
+      int mask = keys.length - 1;
+      int h = hash(key) & mask;
+      while (groups[h] != 0) {
+         if (keys[h] == key) {
+            return groups[h] - 1;
+         }
+         h = (h + 1) & mask;
+      }
+      return -1;
+   }
+
+   /**
+    * Returns the key of a group.
+    * @param group group number
+    * @return return the key numbered group
+    */
+   long key(int group) {
+      return keys[slots[group]];
+   }
+
+   /**
+    * Returns the number of distinct keys in the map.
+    * @return return the number of groups
+    */
+   int size() {
+      return size;
+   }
+
+   /**
+    * Removes all keys, in time proportional to their number.
+    */
+   void clear() {
+      for (int i = 0; i < size; i++) {
+         groups[slots[i]] = 0;
+      }
+      size = 0;
+   }
+
+   /**
+    * Doubles the table, keeping every key's group number.
+    */
+   private void grow() {
+      long[] oldKeys = keys;
+      int[] oldGroups = groups;
+      keys = new long[oldKeys.length * 2];
+      groups = new int[oldKeys.length * 2];
+      slots = Arrays.copyOf(slots, slots.length * 2);
+      int mask = keys.length - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+         if (oldGroups[i] != 0) {
+            int h = hash(oldKeys[i]) & mask;
+            while (groups[h] != 0) {
+               h = (h + 1) & mask;
+            }
+            keys[h] = oldKeys[i];
+            groups[h] = oldGroups[i];
+            slots[oldGroups[i] - 1] = h;
+         }
+      }
+   }
+
+   /**
+    * Spreads the bits of a key so that nearby slopes land far apart.
+    * @param key slope key
+    * @return return the hash
+    */
+   private static int hash(long key) {
+      long h = key * 0x9E3779B97F4A7C15L;
+      return (int) (h ^ (h >>> 32));
+   }
+
+}
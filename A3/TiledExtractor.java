@@ -0,0 +1,571 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * TiledExtractor.java. Finds the maximal line segments of at least four
+ * collinear points in a binary point file too large to hold in memory.
+ *
+ * The points are first partitioned on disk into tiles, each a contiguous
+ * range of the natural order of Point, sorted, with duplicates removed.
+ * Anchor points are then taken a batch at a time, and each batch sweeps
+ * every tile once, holding one tile in memory, while the slope counts of
+ * each anchor are merged across tiles. A line is only reported from its
+ * minimum point, which is recognized by no collinear point lying below it,
+ * so each maximal segment is found exactly once however many tiles it
+ * crosses. Memory holds two tiles and the slope maps of one batch, which
+ * never track more than maxEntries slopes in all: a batch is sized for
+ * that, and when even one anchor may see more slopes, the slopes are split
+ * into slices of their mixed keys that are swept one at a time, at the
+ * cost of reading every tile again for each slice.
+ *
+ * Lines are appended to the output file, one per line of text as the x y
+ * pairs of their points, and a checkpoint is saved in the work directory
+ * after each batch. Running again with the same work directory and output
+ * file resumes after the last completed batch.
+ *
+ * @author  Dargo Wang (yzw0060@auburn.edu)
+ * @author  Dean Hendrix (dh@auburn.edu)
+ * @version 2018-02-27
+ *
+ */
+public class TiledExtractor {
+
+   /**
+    * Receives the progress of a run after each batch of anchors.
+    */
+   public interface Progress {
+
+      /**
+       * Called after each completed and checkpointed batch.
+       * @param done number of anchor points processed
+       * @param total number of anchor points in all
+       */
+      void progress(long done, long total);
+
+   }
+
+   /** number of key-range buckets points are counted in to cut tiles. */
+   private static final int BUCKET_BITS = 20;
+
+   /** most tile files written at once while partitioning. */
+   private static final int MAX_OPEN_TILES = 256;
+
+   /** bytes buffered for each tile file while partitioning. */
+   private static final int BUFFER_BYTES = 1 << 14;
+
+   /** name of the checkpoint file in the work directory. */
+   private static final String CHECKPOINT = "checkpoint";
+
+   /** directory holding the tiles and the checkpoint. */
+   private final Path dir;
+
+   /** number of points aimed for in each tile. */
+   private final int tileCapacity;
+
+   /** most slopes tracked at once by a batch of anchors. */
+   private final long maxEntries;
+
+   /** receives progress, if not null. */
+   private Progress progress;
+
+   /**
+    * Builds a tiled extractor that keeps its tiles and checkpoint in
+    * workDir. If workDir is null, or tileCapacity or maxEntries is less
+    * than 1, throw an IllegalArgumentException.
+    * @param workDir directory for tiles and the checkpoint
+    * @param tileCapacity number of points aimed for in each tile
+    * @param maxEntries most slopes tracked at once
+    */
+   public TiledExtractor(Path workDir, int tileCapacity, long maxEntries) {
+      if (workDir == null || tileCapacity < 1 || maxEntries < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.dir = workDir;
+      this.tileCapacity = tileCapacity;
+      this.maxEntries = maxEntries;
+   }
+
+   /**
+    * Sets the hook that receives progress after each batch.
+    * @param progress progress hook, or null for none
+    */
+   public void setProgress(Progress progress) {
+      this.progress = progress;
+   }
+
+   /**
+    * Writes to output every maximal line segment of at least four collinear
+    * points in the binary point file input, resuming from the checkpoint in
+    * the work directory if there is one. Lines are written in no particular
+    * order; readLines sorts them.
+    * @param input binary point file, as written by PointLoader
+    * @param output file the lines are written to
+    * @throws IOException if a file cannot be read or written
+    */
+   public void run(Path input, Path output) throws IOException {
+      Files.createDirectories(dir);
+      long[] state = readCheckpoint();
+      if (state == null) {
+         int tiles = partition(input);
+         long total = 0;
+         for (int t = 0; t < tiles; t++) {
+            total += PointLoader.size(tile(t));
+         }
+         state = new long[] {tiles, 0, 0, 0, 0, total};
+         writeCheckpoint(state);
+      }
+      int tiles = (int) state[0];
+      long done = state[4];
+      long total = state[5];
+      try (FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE)) {
+         out.truncate(state[3]);
+         out.position(state[3]);
+         for (int t = (int) state[1]; t < tiles; t++) {
+            PointSet anchors = PointLoader.load(tile(t));
+            int batch = (int) Math.max(1, Math.min(anchors.size(), maxEntries / Math.max(1, total)));
+            int from = t == state[1] ? (int) state[2] : 0;
+            while (from < anchors.size()) {
+               int to = Math.min(anchors.size(), from + batch);
+               for (Line line : batch(t, anchors, from, to, tiles, total)) {
+                  write(out, line);
+               }
+               out.force(false);
+               done += to - from;
+               writeCheckpoint(new long[] {tiles, t, to, out.position(), done, total});
+               if (progress != null) {
+                  progress.progress(done, total);
+               }
+               from = to;
+            }
+         }
+      }
+   }
+
+   /**
+    * Reads the lines written by run into a sorted set.
+    * @param output file written by run
+    * @return return set of lines
+    * @throws IOException if the file cannot be read
+    */
+   public static SortedSet<Line> readLines(Path output) throws IOException {
+      SortedSet<Line> lines = new TreeSet<Line>();
+      for (String text : Files.readAllLines(output, StandardCharsets.US_ASCII)) {
+         String[] v = text.trim().split(" ");
+         List<Point> points = new ArrayList<Point>(v.length / 2);
+         for (int i = 0; i + 1 < v.length; i += 2) {
+            points.add(new Point(Integer.parseInt(v[i]), Integer.parseInt(v[i + 1])));
+         }
+         lines.add(new Line(points));
+      }
+      return lines;
+   }
+
+   /**
+    * Finds the lines whose minimum point is one of anchors [from, to) of
+    * tile t. The batch could see up to total slopes for each anchor, so its
+    * slopes are split by the high bits of their mixed keys into enough
+    * slices for each to hold about maxEntries of them, and each slice is
+    * swept on its own.
+    * @param t index of the anchor tile
+    * @param anchors points of tile t
+    * @param from first anchor of the batch
+    * @param to end of the batch
+    * @param tiles number of tiles
+    * @param total number of points in all tiles
+    * @return return the lines found
+    * @throws IOException if a tile cannot be read
+    */
+   private List<Line> batch(int t, PointSet anchors, int from, int to, int tiles, long total)
+         throws IOException {
+      int bits = 0;
+      while (((to - from) * total) >>> bits > maxEntries) {
+         bits++;
+      }
+      List<Line> found = new ArrayList<Line>();
+      for (long prefix = 0; prefix < 1L << bits; prefix++) {
+         slice(t, anchors, from, to, tiles, prefix, bits, found);
+      }
+      return found;
+   }
+
+   /**
+    * Adds to found the lines whose minimum point is one of anchors [from,
+    * to) of tile t and whose slope key mixes to a value with prefix as its
+    * high bits. The first sweep numbers each anchor's slopes in the slice
+    * across all tiles, counting the points above the anchor on each and
+    * remembering the last one, and marks a slope dead once a point below
+    * the anchor is seen on it. If the slice turns out to hold more than
+    * maxEntries slopes, it is given up and its two halves are swept in
+    * turn instead. A second sweep collects the member points of the slopes
+    * that have at least three points and are not dead, stopping past the
+    * last of them.
+    * @param t index of the anchor tile
+    * @param anchors points of tile t
+    * @param from first anchor of the batch
+    * @param to end of the batch
+    * @param tiles number of tiles
+    * @param prefix high bits of the mixed keys of the slice
+    * @param bits number of high bits in prefix
+    * @param found receives the lines found
+    * @throws IOException if a tile cannot be read
+    */
+   private void slice(int t, PointSet anchors, int from, int to, int tiles, long prefix,
+                      int bits, List<Line> found) throws IOException {
+      int b = to - from;
+      SlopeMap[] maps = new SlopeMap[b];
+      int[][] counts = new int[b][];
+      long[][] last = new long[b][];
+      for (int j = 0; j < b; j++) {
+         maps[j] = new SlopeMap(16);
+         counts[j] = new int[16];
+         last[j] = new long[16];
+      }
+      long entries = 0;
+      for (int u = 0; u < tiles; u++) {
+         PointSet other = u == t ? anchors : PointLoader.load(tile(u));
+         for (int j = 0; j < b; j++) {
+            int a = from + j;
+            for (int i = 0; i < other.size(); i++) {
+               long key = Point.slopeKey(other.x(i) - anchors.x(a), other.y(i) - anchors.y(a));
+               if (key == 0 || bits > 0 && mix(key) >>> (64 - bits) != prefix) {
+                  continue;
+               }
+               int size = maps[j].size();
+               int g = maps[j].group(key);
+               if (g == size && ++entries > maxEntries) {
+                  slice(t, anchors, from, to, tiles, prefix << 1, bits + 1, found);
+                  slice(t, anchors, from, to, tiles, prefix << 1 | 1, bits + 1, found);
+                  return;
+               }
+               if (g == counts[j].length) {
+                  counts[j] = Arrays.copyOf(counts[j], g * 2);
+                  last[j] = Arrays.copyOf(last[j], g * 2);
+               }
+               if (u < t || (u == t && i < a)) {
+                  counts[j][g] = Integer.MIN_VALUE;
+               }
+               else {
+                  counts[j][g]++;
+                  last[j][g] = pack(other, i);
+               }
+            }
+         }
+      }
+
+      List<List<Point>> members = new ArrayList<List<Point>>();
+      int[][] line = new int[b][];
+      long end = -1;
+      for (int j = 0; j < b; j++) {
+         for (int g = 0; g < maps[j].size(); g++) {
+            if (counts[j][g] >= 3) {
+               if (line[j] == null) {
+                  line[j] = new int[maps[j].size()];
+                  Arrays.fill(line[j], -1);
+               }
+               line[j][g] = members.size();
+               List<Point> on = new ArrayList<Point>(counts[j][g] + 1);
+               on.add(anchors.point(from + j));
+               members.add(on);
+               end = Math.max(end, last[j][g]);
+            }
+         }
+      }
+      for (int u = t; u < tiles && !members.isEmpty(); u++) {
+         PointSet other = u == t ? anchors : PointLoader.load(tile(u));
+         if (other.size() > 0 && pack(other, 0) > end) {
+            break;
+         }
+         for (int j = 0; j < b; j++) {
+            if (line[j] == null) {
+               continue;
+            }
+            int a = from + j;
+            for (int i = u == t ? a + 1 : 0; i < other.size(); i++) {
+               int g = maps[j].find(Point.slopeKey(other.x(i) - anchors.x(a),
+                                                   other.y(i) - anchors.y(a)));
+               if (g >= 0 && line[j][g] >= 0) {
+                  members.get(line[j][g]).add(other.point(i));
+               }
+            }
+         }
+      }
+      for (List<Point> on : members) {
+         found.add(new Line(on));
+      }
+   }
+
+   /**
+    * Scrambles a slope key one to one, so that the high bits of mixed keys
+    * split any set of slopes into slices of about equal size.
+    * @param key slope key
+    * @return return the mixed key
+    */
+   private static long mix(long key) {
+      long h = key * 0xC2B2AE3D27D4EB4FL;
+      return h ^ (h >>> 29);
+   }
+
+   /**
+    * Partitions the points of input into tiles of about tileCapacity points
+    * each, and never more, covering consecutive ranges of the natural order.
+    * Points are counted into buckets of that order in one pass, and runs of
+    * buckets are cut into tiles, a bucket too full for one tile being
+    * counted again into finer buckets by cut. The points are then copied to
+    * their tiles in further passes of at most MAX_OPEN_TILES tiles each, and
+    * each tile is sorted and its duplicates removed.
+    * @param input binary point file
+    * @return return the number of tiles
+    * @throws IOException if a file cannot be read or written
+    */
+   private int partition(Path input) throws IOException {
+      long[] bounds = {Long.MAX_VALUE, -1};
+      PointLoader.scan(input, p -> {
+            bounds[0] = Math.min(bounds[0], p);
+            bounds[1] = Math.max(bounds[1], p);
+         });
+      if (bounds[1] < 0) {
+         return 0;
+      }
+      long min = bounds[0];
+      int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(bounds[1] - min) - BUCKET_BITS);
+      List<Long> cuts = new ArrayList<Long>();
+      List<Integer> sizes = new ArrayList<Integer>();
+      cut(input, min, 0, bounds[1] - min + 1, shift, cuts, sizes);
+      long[] starts = new long[cuts.size()];
+      int[] left = new int[starts.length];
+      for (int t = 0; t < starts.length; t++) {
+         starts[t] = cuts.get(t);
+         left[t] = sizes.get(t);
+      }
+      int tiles = starts.length;
+
+      for (int first = 0; first < tiles; first += MAX_OPEN_TILES) {
+         int lo = first;
+         int hi = Math.min(tiles, first + MAX_OPEN_TILES);
+         FileChannel[] channels = new FileChannel[hi - lo];
+         ByteBuffer[] buffers = new ByteBuffer[hi - lo];
+         try {
+            for (int t = lo; t < hi; t++) {
+               channels[t - lo] = FileChannel.open(tile(t), StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+               buffers[t - lo] = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+               buffers[t - lo].putInt(PointLoader.MAGIC).putInt(sizes.get(t));
+            }
+            IOException[] failure = new IOException[1];
+            PointLoader.scan(input, p -> {
+                  int t = Arrays.binarySearch(starts, p - min);
+                  if (t < 0) {
+                     t = -t - 2;
+                  }
+                  if (t >= lo && t < hi && left[t] > 0 && failure[0] == null) {
+                     left[t]--;
+                     ByteBuffer buf = buffers[t - lo];
+                     if (buf.remaining() < 2 * Integer.BYTES) {
+                        try {
+                           drain(buf, channels[t - lo]);
+                        }
+                        catch (IOException e) {
+                           failure[0] = e;
+                           return;
+                        }
+                     }
+                     buf.putInt((int) p).putInt((int) (p >>> 32));
+                  }
+               });
+            if (failure[0] != null) {
+               throw failure[0];
+            }
+            for (int t = lo; t < hi; t++) {
+               drain(buffers[t - lo], channels[t - lo]);
+            }
+         }
+         finally {
+            for (FileChannel channel : channels) {
+               if (channel != null) {
+                  channel.close();
+               }
+            }
+         }
+      }
+
+      for (int t = 0; t < tiles; t++) {
+         PointSet set = PointLoader.load(tile(t));
+         long[] keys = new long[set.size()];
+         for (int i = 0; i < keys.length; i++) {
+            keys[i] = pack(set, i);
+         }
+         Arrays.sort(keys);
+         int n = 0;
+         for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+               keys[n++] = keys[i];
+            }
+         }
+         int[] xs = new int[n];
+         int[] ys = new int[n];
+         for (int i = 0; i < n; i++) {
+            xs[i] = (int) keys[i];
+            ys[i] = (int) (keys[i] >>> 32);
+         }
+         PointLoader.writeBinary(new PointSet(xs, ys), tile(t));
+      }
+      return tiles;
+   }
+
+   /**
+    * Counts the points of input whose packed offsets from min lie in
+    * [base, base + span) into buckets of 1 << shift offsets each, and cuts
+    * runs of the buckets into tiles, continuing the last tile in sizes. A
+    * bucket holding more than tileCapacity points is cut the same way at a
+    * finer shift, with one more pass over input. At shift 0 such a bucket
+    * holds copies of one point, so it becomes a tile of that one point, and
+    * the next bucket starts a new tile.
+    * @param input binary point file
+    * @param min least packed point of input
+    * @param base offset of the first bucket
+    * @param span number of offsets covered, at most 1 << BUCKET_BITS buckets
+    * @param shift log2 of the offsets in a bucket
+    * @param starts receives the offset each new tile starts at
+    * @param sizes number of points in each tile
+    * @throws IOException if the file cannot be read
+    */
+   private void cut(Path input, long min, long base, long span, int shift, List<Long> starts,
+                    List<Integer> sizes) throws IOException {
+      int[] bucketCount = new int[(int) ((span - 1) >>> shift) + 1];
+      PointLoader.scan(input, p -> {
+            long offset = p - min - base;
+            if (offset >= 0 && offset < span) {
+               bucketCount[(int) (offset >>> shift)]++;
+            }
+         });
+      for (int k = 0; k < bucketCount.length; k++) {
+         long start = base + ((long) k << shift);
+         int count = bucketCount[k];
+         int last = sizes.size() - 1;
+         if (count > tileCapacity && shift > 0) {
+            cut(input, min, start, 1L << shift, Math.max(0, shift - BUCKET_BITS), starts, sizes);
+         }
+         else if (count > tileCapacity) {
+            if (last >= 0 && sizes.get(last) == 0) {
+               starts.set(last, start);
+               sizes.set(last, 1);
+            }
+            else {
+               starts.add(start);
+               sizes.add(1);
+            }
+            starts.add(start + 1);
+            sizes.add(0);
+         }
+         else if (last < 0 || sizes.get(last) > 0 && (long) sizes.get(last) + count > tileCapacity) {
+            starts.add(start);
+            sizes.add(count);
+         }
+         else {
+            sizes.set(last, sizes.get(last) + count);
+         }
+      }
+   }
+
+   /**
+    * Returns point i of set packed as PointLoader.scan packs points, so that
+    * packed points order as Points do.
+    * @param set point set
+    * @param i index of the point
+    * @return return the packed point
+    */
+   private static long pack(PointSet set, int i) {
+      return ((long) set.y(i) << 32) | set.x(i);
+   }
+
+   /**
+    * Returns the path of tile t.
+    * @param t tile number
+    * @return return the path
+    */
+   private Path tile(int t) {
+      return dir.resolve(String.format("tile-%06d.bin", t));
+   }
+
+   /**
+    * Appends line to out as one line of text.
+    * @param out channel to write to
+    * @param line line to write
+    * @throws IOException if the write fails
+    */
+   private static void write(FileChannel out, Line line) throws IOException {
+      StringBuilder s = new StringBuilder();
+      for (Point p : line) {
+         s.append(p.x()).append(' ').append(p.y()).append(' ');
+      }
+      s.setCharAt(s.length() - 1, '\n');
+      ByteBuffer buf = ByteBuffer.wrap(s.toString().getBytes(StandardCharsets.US_ASCII));
+      while (buf.hasRemaining()) {
+         out.write(buf);
+      }
+   }
+
+   /**
+    * Writes out what has been put in buf and clears it.
+    * @param buf buffer to write
+    * @param channel channel to write to
+    * @throws IOException if the write fails
+    */
+   private static void drain(ByteBuffer buf, FileChannel channel) throws IOException {
+      buf.flip();
+      while (buf.hasRemaining()) {
+         channel.write(buf);
+      }
+      buf.clear();
+   }
+
+   /**
+    * Reads the checkpoint: the number of tiles, the tile and anchor to resume
+    * at, the length of output written, and the anchors done and in all.
+    * @return return the checkpoint, or null if there is none
+    * @throws IOException if the checkpoint cannot be read
+    */
+   private long[] readCheckpoint() throws IOException {
+      Path file = dir.resolve(CHECKPOINT);
+      if (!Files.exists(file)) {
+         return null;
+      }
+      String[] v = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim().split(" ");
+      long[] state = new long[v.length];
+      for (int i = 0; i < v.length; i++) {
+         state[i] = Long.parseLong(v[i]);
+      }
+      return state;
+   }
+
+   /**
+    * Replaces the checkpoint atomically, so a crash leaves either the old or
+    * the new one.
+    * @param state values to save, as read by readCheckpoint
+    * @throws IOException if the checkpoint cannot be written
+    */
+   private void writeCheckpoint(long[] state) throws IOException {
+      StringBuilder s = new StringBuilder();
+      for (long v : state) {
+         s.append(v).append(' ');
+      }
+      Path temp = dir.resolve(CHECKPOINT + ".tmp");
+      Files.write(temp, s.toString().trim().getBytes(StandardCharsets.US_ASCII));
+      Files.move(temp, dir.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+   }
+
+}